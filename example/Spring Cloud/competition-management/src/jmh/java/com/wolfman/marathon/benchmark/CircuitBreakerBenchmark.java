@@ -0,0 +1,115 @@
+package com.wolfman.marathon.benchmark;
+
+import com.wolfman.marathon.circuitbreaker.CompactCircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * {@link CompactCircuitBreaker} vs resilience4j with the COUNT_BASED window of 20 configured in application.yaml.
+ * <p>
+ * {@code call*} measure the per-call overhead of a successful call, single-threaded and with 4 threads
+ * sharing one breaker. {@code create*} measure the cost of building a breaker.
+ * <p>
+ * The heap a breaker keeps alive is printed once per trial: JOL walks the object graph of
+ * {@value #RETAINED_SAMPLE} breakers, the shared config is subtracted and the rest divided
+ * per breaker. Allocation during construction ({@code gc.alloc.rate.norm}) includes garbage
+ * and is not the same thing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CircuitBreakerBenchmark {
+
+    private static final Supplier<String> CALL = () -> "ok";
+
+    private static final Function<Throwable, String> FALLBACK = t -> "fallback";
+
+    private static final int RETAINED_SAMPLE = 1000;
+
+    private CircuitBreakerConfig resilience4jConfig;
+
+    private CompactCircuitBreaker.Config compactConfig;
+
+    private CircuitBreaker resilience4j;
+
+    private CompactCircuitBreaker compact;
+
+    private int sequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        resilience4jConfig = CircuitBreakerConfig.custom()
+                .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(3)
+                .failureRateThreshold(20)
+                .build();
+        compactConfig = new CompactCircuitBreaker.Config(20, 3, 20, Duration.ofSeconds(60), 10);
+        resilience4j = CircuitBreaker.of("customer-management_getCustomerInfo", resilience4jConfig);
+        compact = new CompactCircuitBreaker("customer-management_getCustomerInfo", compactConfig);
+
+        Object[] resilience4jBreakers = new Object[RETAINED_SAMPLE];
+        Object[] compactBreakers = new Object[RETAINED_SAMPLE];
+        for (int i = 0; i < RETAINED_SAMPLE; i++) {
+            resilience4jBreakers[i] = CircuitBreaker.of("breaker-" + i, resilience4jConfig);
+            compactBreakers[i] = new CompactCircuitBreaker("breaker-" + i, compactConfig);
+        }
+        System.out.printf("%nretained per breaker: resilience4j %d bytes, compact %d bytes%n",
+                retainedPerBreaker(resilience4jBreakers, resilience4jConfig),
+                retainedPerBreaker(compactBreakers, compactConfig));
+    }
+
+    @Benchmark
+    public String callResilience4j() {
+        return resilience4j.executeSupplier(CALL);
+    }
+
+    @Benchmark
+    public String callCompact() {
+        return compact.run(CALL, FALLBACK);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String callResilience4jContended() {
+        return resilience4j.executeSupplier(CALL);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String callCompactContended() {
+        return compact.run(CALL, FALLBACK);
+    }
+
+    @Benchmark
+    public CircuitBreaker createResilience4j() {
+        return CircuitBreaker.of("breaker-" + sequence++, resilience4jConfig);
+    }
+
+    @Benchmark
+    public CompactCircuitBreaker createCompact() {
+        return new CompactCircuitBreaker("breaker-" + sequence++, compactConfig);
+    }
+
+    private static long retainedPerBreaker(Object[] breakers, Object sharedConfig) {
+        // every element is its own root, the array itself is not counted
+        GraphLayout layout = GraphLayout.parseInstance(breakers).subtract(GraphLayout.parseInstance(sharedConfig));
+        return layout.totalSize() / breakers.length;
+    }
+
+}
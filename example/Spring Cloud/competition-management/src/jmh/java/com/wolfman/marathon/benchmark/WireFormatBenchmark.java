@@ -0,0 +1,106 @@
+package com.wolfman.marathon.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.wolfman.marathon.dto.CustomerInfoDTO;
+import com.wolfman.marathon.dto.CustomerRequestParams;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON vs CBOR for the payloads exchanged with customer-management: a single
+ * {@link CustomerInfoDTO}, a /customer/batch response and a {@link CustomerRequestParams}.
+ * Payload sizes are printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WireFormatBenchmark {
+
+    private static final TypeReference<List<CustomerInfoDTO>> CUSTOMER_INFO_LIST = new TypeReference<>() {
+    };
+
+    @Param({"customer", "batch", "params"})
+    private String payload;
+
+    private ObjectMapper json;
+
+    private ObjectMapper cbor;
+
+    private Object value;
+
+    private byte[] jsonBytes;
+
+    private byte[] cborBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        json = Jackson2ObjectMapperBuilder.json().build();
+        cbor = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        value = switch (payload) {
+            case "customer" -> customer(1);
+            case "batch" -> batch(50);
+            case "params" -> new CustomerRequestParams("张三", "13800000000");
+            default -> throw new IllegalArgumentException(payload);
+        };
+        jsonBytes = json.writeValueAsBytes(value);
+        cborBytes = cbor.writeValueAsBytes(value);
+        System.out.printf("%n%s payload: json %d bytes, cbor %d bytes (%.0f%%)%n", payload, jsonBytes.length,
+                cborBytes.length, 100.0 * cborBytes.length / jsonBytes.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return json.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public byte[] encodeCbor() throws IOException {
+        return cbor.writeValueAsBytes(value);
+    }
+
+    @Benchmark
+    public Object decodeJson() throws IOException {
+        return decode(json, jsonBytes);
+    }
+
+    @Benchmark
+    public Object decodeCbor() throws IOException {
+        return decode(cbor, cborBytes);
+    }
+
+    private Object decode(ObjectMapper mapper, byte[] bytes) throws IOException {
+        return switch (payload) {
+            case "customer" -> mapper.readValue(bytes, CustomerInfoDTO.class);
+            case "batch" -> mapper.readValue(bytes, CUSTOMER_INFO_LIST);
+            default -> mapper.readValue(bytes, CustomerRequestParams.class);
+        };
+    }
+
+    private static CustomerInfoDTO customer(int id) {
+        return new CustomerInfoDTO(String.valueOf(id), "John Doe " + id, "1380000" + String.format("%04d", id));
+    }
+
+    private static List<CustomerInfoDTO> batch(int size) {
+        List<CustomerInfoDTO> customers = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            customers.add(customer(i));
+        }
+        return customers;
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.wolfman.marathon.circuitbreaker;
+
+/**
+ * 熔断器处于 OPEN 或 HALF_OPEN 试探名额已满时拒绝调用，传给 fallback。不填充栈，拒绝时没有额外开销。
+ */
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(String name) {
+        super("CircuitBreaker '" + name + "' is OPEN and does not permit further calls", null, false, false);
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.wolfman.marathon.circuitbreaker;
+
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 只有几个 long 字段的计数窗口熔断器，行为对应 resilience4j COUNT_BASED 窗口的 CLOSED / OPEN / HALF_OPEN。
+ * <p>
+ * 状态全部打包在一个 long 里，每次调用一次 CAS 更新，不加锁：
+ * <pre>
+ * bit 0-31   最近 slidingWindowSize 次调用的结果环，1 表示失败
+ * bit 32-37  环的写入位置
+ * bit 38-43  已记录的调用数，不超过窗口大小
+ * bit 44-45  状态
+ * bit 46-51  HALF_OPEN 时已放行的试探调用数
+ * </pre>
+ * 窗口最大 32，HALF_OPEN 时重新用这个环记录试探调用。
+ */
+public class CompactCircuitBreaker implements CircuitBreaker {
+
+    public static final int MAX_WINDOW_SIZE = 32;
+
+    static final int CLOSED = 0;
+
+    static final int OPEN = 1;
+
+    static final int HALF_OPEN = 2;
+
+    private static final long RING_MASK = 0xFFFF_FFFFL;
+
+    private static final int CURSOR_SHIFT = 32;
+
+    private static final int COUNT_SHIFT = 38;
+
+    private static final int STATE_SHIFT = 44;
+
+    private static final int PERMITS_SHIFT = 46;
+
+    private static final long SIX_BITS = 0x3F;
+
+    private static final VarHandle STATE;
+
+    static {
+        try {
+            STATE = MethodHandles.lookup().findVarHandle(CompactCircuitBreaker.class, "state", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String name;
+
+    private final Config config;
+
+    private volatile long state;
+
+    private volatile long openedAtNanos;
+
+    /**
+     * 最近一次申请调用的时间，只用于空闲淘汰，不要求精确，普通写入即可。
+     */
+    private long lastUsedNanos;
+
+    public CompactCircuitBreaker(String name, Config config) {
+        this.name = name;
+        this.config = config;
+        this.lastUsedNanos = System.nanoTime();
+    }
+
+    @Override
+    public <T> T run(Supplier<T> toRun, Function<Throwable, T> fallback) {
+        if (!tryAcquirePermission()) {
+            return fallback.apply(new CircuitBreakerOpenException(name));
+        }
+        T result;
+        try {
+            result = toRun.get();
+        } catch (Throwable t) {
+            onResult(true);
+            return fallback.apply(t);
+        }
+        onResult(false);
+        return result;
+    }
+
+    public boolean tryAcquirePermission() {
+        long now = System.nanoTime();
+        lastUsedNanos = now;
+        while (true) {
+            long current = state;
+            int state = state(current);
+            if (state == CLOSED) {
+                return true;
+            }
+            if (state == OPEN) {
+                if (now - openedAtNanos < config.waitNanos) {
+                    return false;
+                }
+                if (STATE.compareAndSet(this, current, pack(HALF_OPEN, 0, 0, 0, 1))) {
+                    return true;
+                }
+                continue;
+            }
+            if (permits(current) >= config.permittedNumberOfCallsInHalfOpenState) {
+                return false;
+            }
+            if (STATE.compareAndSet(this, current, current + (1L << PERMITS_SHIFT))) {
+                return true;
+            }
+        }
+    }
+
+    public void onResult(boolean failure) {
+        while (true) {
+            long current = state;
+            int state = state(current);
+            // 打开之前放行的调用，结果不再计入
+            if (state == OPEN) {
+                return;
+            }
+            int window = state == CLOSED ? config.slidingWindowSize : MAX_WINDOW_SIZE;
+            int cursor = (int) (current >>> CURSOR_SHIFT & SIX_BITS);
+            long bit = 1L << cursor;
+            long ring = failure ? current & RING_MASK | bit : current & RING_MASK & ~bit;
+            int count = Math.min((int) (current >>> COUNT_SHIFT & SIX_BITS) + 1, window);
+            int nextCursor = (cursor + 1) % window;
+
+            long next;
+            if (state == CLOSED) {
+                next = count >= config.minimumNumberOfCalls && exceeded(ring, count)
+                        ? pack(OPEN, 0, 0, 0, 0)
+                        : pack(CLOSED, ring, nextCursor, count, 0);
+            } else if (count >= config.permittedNumberOfCallsInHalfOpenState) {
+                next = exceeded(ring, count) ? pack(OPEN, 0, 0, 0, 0) : pack(CLOSED, 0, 0, 0, 0);
+            } else {
+                next = pack(HALF_OPEN, ring, nextCursor, count, permits(current));
+            }
+            if (state(next) == OPEN) {
+                openedAtNanos = System.nanoTime();
+            }
+            if (STATE.compareAndSet(this, current, next)) {
+                return;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getState() {
+        return state(state);
+    }
+
+    /**
+     * 当前窗口的失败率，调用数没达到 minimumNumberOfCalls 时返回 -1，和 resilience4j 一致。
+     */
+    public float getFailureRate() {
+        long current = state;
+        int count = (int) (current >>> COUNT_SHIFT & SIX_BITS);
+        if (count < config.minimumNumberOfCalls) {
+            return -1;
+        }
+        return Long.bitCount(current & RING_MASK) * 100f / count;
+    }
+
+    /**
+     * 空闲超过 idleNanos 且没有处于 OPEN 的熔断器可以丢掉，重新创建的实例和它只差窗口里的历史结果。
+     */
+    void touch(long now) {
+        lastUsedNanos = now;
+    }
+
+    boolean isIdle(long now, long idleNanos) {
+        return now - lastUsedNanos > idleNanos && state(state) != OPEN;
+    }
+
+    private boolean exceeded(long ring, int count) {
+        return Long.bitCount(ring) * 100f >= config.failureRateThreshold * count;
+    }
+
+    private static int state(long packed) {
+        return (int) (packed >>> STATE_SHIFT & 0x3);
+    }
+
+    private static int permits(long packed) {
+        return (int) (packed >>> PERMITS_SHIFT & SIX_BITS);
+    }
+
+    private static long pack(int state, long ring, int cursor, int count, int permits) {
+        return ring
+                | (long) cursor << CURSOR_SHIFT
+                | (long) count << COUNT_SHIFT
+                | (long) state << STATE_SHIFT
+                | (long) permits << PERMITS_SHIFT;
+    }
+
+    /**
+     * 熔断器配置，同名参数含义和默认值同 resilience4j CircuitBreakerConfig。所有熔断器共用同一个实例。
+     */
+    public static final class Config {
+
+        private final int slidingWindowSize;
+
+        private final int minimumNumberOfCalls;
+
+        private final float failureRateThreshold;
+
+        private final long waitNanos;
+
+        private final int permittedNumberOfCallsInHalfOpenState;
+
+        public Config(int slidingWindowSize, int minimumNumberOfCalls, float failureRateThreshold,
+                      Duration waitDurationInOpenState, int permittedNumberOfCallsInHalfOpenState) {
+            if (slidingWindowSize < 1 || slidingWindowSize > MAX_WINDOW_SIZE) {
+                throw new IllegalArgumentException("slidingWindowSize must be between 1 and " + MAX_WINDOW_SIZE);
+            }
+            if (permittedNumberOfCallsInHalfOpenState < 1 || permittedNumberOfCallsInHalfOpenState > MAX_WINDOW_SIZE) {
+                throw new IllegalArgumentException("permittedNumberOfCallsInHalfOpenState must be between 1 and "
+                        + MAX_WINDOW_SIZE);
+            }
+            this.slidingWindowSize = slidingWindowSize;
+            this.minimumNumberOfCalls = Math.min(minimumNumberOfCalls, slidingWindowSize);
+            this.failureRateThreshold = failureRateThreshold;
+            this.waitNanos = waitDurationInOpenState.toNanos();
+            this.permittedNumberOfCallsInHalfOpenState = permittedNumberOfCallsInHalfOpenState;
+        }
+
+        public static Config ofDefaults() {
+            return new Config(20, 3, 20, Duration.ofSeconds(60), 10);
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.wolfman.marathon.circuitbreaker;
+
+import org.springframework.cloud.client.circuitbreaker.CircuitBreaker;
+import org.springframework.cloud.client.circuitbreaker.CircuitBreakerFactory;
+import org.springframework.cloud.client.circuitbreaker.ConfigBuilder;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 用 {@link CompactCircuitBreaker} 实现的 {@link CircuitBreakerFactory}，Feign 每次调用都会 create，
+ * 所以这里只是一次注册表查找。没有 TimeLimiter，调用超时由 OkHttp 的读超时控制。
+ */
+public class CompactCircuitBreakerFactory extends CircuitBreakerFactory<CompactCircuitBreaker.Config,
+        CompactCircuitBreakerFactory.Builder> {
+
+    private final CompactCircuitBreakerRegistry registry;
+
+    private Function<String, CompactCircuitBreaker.Config> defaultConfiguration;
+
+    public CompactCircuitBreakerFactory(CompactCircuitBreaker.Config defaultConfig, Duration idleTimeout) {
+        this.defaultConfiguration = id -> defaultConfig;
+        this.registry = new CompactCircuitBreakerRegistry(
+                id -> getConfigurations().getOrDefault(id, defaultConfiguration.apply(id)), idleTimeout);
+    }
+
+    @Override
+    public CircuitBreaker create(String id) {
+        return registry.circuitBreaker(id);
+    }
+
+    @Override
+    protected Builder configBuilder(String id) {
+        return new Builder();
+    }
+
+    @Override
+    public void configureDefault(Function<String, CompactCircuitBreaker.Config> defaultConfiguration) {
+        this.defaultConfiguration = defaultConfiguration;
+    }
+
+    public CompactCircuitBreakerRegistry getRegistry() {
+        return registry;
+    }
+
+    public static class Builder implements ConfigBuilder<CompactCircuitBreaker.Config> {
+
+        private int slidingWindowSize = 20;
+
+        private int minimumNumberOfCalls = 3;
+
+        private float failureRateThreshold = 20;
+
+        private Duration waitDurationInOpenState = Duration.ofSeconds(60);
+
+        private int permittedNumberOfCallsInHalfOpenState = 10;
+
+        public Builder slidingWindowSize(int slidingWindowSize) {
+            this.slidingWindowSize = slidingWindowSize;
+            return this;
+        }
+
+        public Builder minimumNumberOfCalls(int minimumNumberOfCalls) {
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+            return this;
+        }
+
+        public Builder failureRateThreshold(float failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        public Builder waitDurationInOpenState(Duration waitDurationInOpenState) {
+            this.waitDurationInOpenState = waitDurationInOpenState;
+            return this;
+        }
+
+        public Builder permittedNumberOfCallsInHalfOpenState(int permittedNumberOfCallsInHalfOpenState) {
+            this.permittedNumberOfCallsInHalfOpenState = permittedNumberOfCallsInHalfOpenState;
+            return this;
+        }
+
+        @Override
+        public CompactCircuitBreaker.Config build() {
+            return new CompactCircuitBreaker.Config(slidingWindowSize, minimumNumberOfCalls, failureRateThreshold,
+                    waitDurationInOpenState, permittedNumberOfCallsInHalfOpenState);
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.wolfman.marathon.circuitbreaker;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 按名字保存 {@link CompactCircuitBreaker}。没有后台线程：获取熔断器时顺便检查，距上次清理超过 idleTimeout
+ * 就清掉空闲超过 idleTimeout 的熔断器，所以 Feign 方法再多，注册表里也只有最近用过的那些。
+ */
+public class CompactCircuitBreakerRegistry {
+
+    private final ConcurrentHashMap<String, CompactCircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+    private final Function<String, CompactCircuitBreaker.Config> configResolver;
+
+    private final long idleNanos;
+
+    private final AtomicLong lastSweepNanos = new AtomicLong(System.nanoTime());
+
+    private final LongAdder evicted = new LongAdder();
+
+    public CompactCircuitBreakerRegistry(Function<String, CompactCircuitBreaker.Config> configResolver, Duration idleTimeout) {
+        this.configResolver = configResolver;
+        this.idleNanos = idleTimeout.toNanos();
+    }
+
+    public CompactCircuitBreaker circuitBreaker(String name) {
+        CompactCircuitBreaker circuitBreaker = circuitBreakers.get(name);
+        if (circuitBreaker == null) {
+            circuitBreaker = circuitBreakers.computeIfAbsent(name, key -> new CompactCircuitBreaker(key, configResolver.apply(key)));
+        }
+        // 先标记为刚用过再清理，不会把马上要用的熔断器当成空闲清掉
+        long now = System.nanoTime();
+        circuitBreaker.touch(now);
+        evictIdleIfDue(now);
+        return circuitBreaker;
+    }
+
+    public int size() {
+        return circuitBreakers.size();
+    }
+
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    private void evictIdleIfDue(long now) {
+        long last = lastSweepNanos.get();
+        if (now - last < idleNanos || !lastSweepNanos.compareAndSet(last, now)) {
+            return;
+        }
+        circuitBreakers.values().removeIf(circuitBreaker -> {
+            boolean idle = circuitBreaker.isIdle(now, idleNanos);
+            if (idle) {
+                evicted.increment();
+            }
+            return idle;
+        });
+    }
+
+}
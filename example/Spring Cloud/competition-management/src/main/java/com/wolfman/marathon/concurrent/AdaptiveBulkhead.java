@@ -0,0 +1,314 @@
+package com.wolfman.marathon.concurrent;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.event.BulkheadEvent;
+import io.github.resilience4j.bulkhead.event.BulkheadOnCallFinishedEvent;
+import io.github.resilience4j.bulkhead.event.BulkheadOnCallPermittedEvent;
+import io.github.resilience4j.bulkhead.event.BulkheadOnCallRejectedEvent;
+import io.github.resilience4j.core.EventConsumer;
+import io.github.resilience4j.core.EventProcessor;
+import io.github.resilience4j.core.exception.AcquirePermissionCancelledException;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 并发上限随延迟自适应的 {@link Bulkhead}，替换 BulkheadRegistry 里的同名实例后 {@code @Bulkhead(type = SEMAPHORE)} 直接使用。
+ * <p>
+ * 梯度算法：短期延迟 (快 EWMA) 接近长期延迟 (慢 EWMA) 时说明下游没有排队，上限按 sqrt(limit) 往上加；
+ * 短期延迟变长时上限按 长期/短期 的比例收缩，最多减半。新上限再做一次平滑，并限制在 [minLimit, maxLimit]。
+ * <p>
+ * 延迟在 acquirePermission 和 onComplete 之间测量，只对同步调用有效；异步调用的完成回调不在同一线程，不参与调整。
+ * <p>
+ * acquirePermission 在 Condition 上等待，由 onComplete / releasePermission 和上限提高时唤醒，不轮询；
+ * 等不到许可只发一次 rejected 事件，等待中被中断时保留中断标记并抛 AcquirePermissionCancelledException，和 SemaphoreBulkhead 一致。
+ */
+public class AdaptiveBulkhead implements Bulkhead {
+
+    private static final double SHORT_WINDOW = 0.2;
+
+    private static final double LONG_WINDOW = 0.01;
+
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final String name;
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final ThreadLocal<Long> startNanos = new ThreadLocal<>();
+
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    private final ReentrantLock waitLock = new ReentrantLock();
+
+    private final Condition permitReleased = waitLock.newCondition();
+
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final Map<String, String> tags;
+
+    private final BulkheadEventProcessor eventProcessor = new BulkheadEventProcessor();
+
+    private final Metrics metrics = new AdaptiveBulkheadMetrics();
+
+    private volatile BulkheadConfig config;
+
+    private volatile int limit;
+
+    private double estimatedLimit;
+
+    private double shortRttNanos;
+
+    private double longRttNanos;
+
+    public AdaptiveBulkhead(String name, BulkheadConfig config, int minLimit, int maxLimit, double smoothing,
+                            Map<String, String> tags) {
+        this.name = name;
+        this.tags = Map.copyOf(tags);
+        this.config = config;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.estimatedLimit = Math.max(minLimit, Math.min(maxLimit, config.getMaxConcurrentCalls()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    @Override
+    public void changeConfig(BulkheadConfig newConfig) {
+        this.config = newConfig;
+    }
+
+    @Override
+    public boolean tryAcquirePermission() {
+        if (!tryAcquire()) {
+            publish(new BulkheadOnCallRejectedEvent(name));
+            return false;
+        }
+        publish(new BulkheadOnCallPermittedEvent(name));
+        return true;
+    }
+
+    @Override
+    public void acquirePermission() {
+        if (tryAcquire()) {
+            publish(new BulkheadOnCallPermittedEvent(name));
+            return;
+        }
+        long remainingNanos = config.getMaxWaitDuration().toNanos();
+        boolean acquired = false;
+        waiters.incrementAndGet();
+        waitLock.lock();
+        try {
+            while (!(acquired = tryAcquire()) && remainingNanos > 0) {
+                remainingNanos = permitReleased.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            // 可能已经消费了一次唤醒，转给下一个等待者
+            permitReleased.signal();
+            Thread.currentThread().interrupt();
+            publish(new BulkheadOnCallRejectedEvent(name));
+            throw new AcquirePermissionCancelledException();
+        } finally {
+            waitLock.unlock();
+            waiters.decrementAndGet();
+        }
+        if (!acquired) {
+            publish(new BulkheadOnCallRejectedEvent(name));
+            throw BulkheadFullException.createBulkheadFullException(this);
+        }
+        publish(new BulkheadOnCallPermittedEvent(name));
+    }
+
+    @Override
+    public void releasePermission() {
+        inFlight.decrementAndGet();
+        startNanos.remove();
+        signalWaiters(false);
+    }
+
+    @Override
+    public void onComplete() {
+        int inFlightAtCompletion = inFlight.getAndDecrement();
+        signalWaiters(false);
+        Long start = startNanos.get();
+        startNanos.remove();
+        if (start != null) {
+            onSample(System.nanoTime() - start, inFlightAtCompletion);
+        }
+        publish(new BulkheadOnCallFinishedEvent(name));
+    }
+
+    private boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        startNanos.set(System.nanoTime());
+        return true;
+    }
+
+    /**
+     * 有人等待时唤醒：释放一个许可唤醒一个，上限提高时全部唤醒。等待者先登记 waiters 再在锁里检查许可，不会错过唤醒。
+     */
+    private void signalWaiters(boolean all) {
+        if (waiters.get() == 0) {
+            return;
+        }
+        waitLock.lock();
+        try {
+            if (all) {
+                permitReleased.signalAll();
+            } else {
+                permitReleased.signal();
+            }
+        } finally {
+            waitLock.unlock();
+        }
+    }
+
+    /**
+     * 记录一次调用延迟并调整上限。调整时拿不到锁就跳过这个样本，不让调用方排队。
+     */
+    void onSample(long rttNanos, int inFlightAtCompletion) {
+        if (!updateLock.tryLock()) {
+            return;
+        }
+        try {
+            if (longRttNanos == 0) {
+                shortRttNanos = rttNanos;
+                longRttNanos = rttNanos;
+                return;
+            }
+            shortRttNanos += (rttNanos - shortRttNanos) * SHORT_WINDOW;
+            longRttNanos += (rttNanos - longRttNanos) * LONG_WINDOW;
+            // 长期延迟高于短期延迟较多时说明已经恢复，让长期基线更快下降
+            if (longRttNanos / shortRttNanos > 2) {
+                longRttNanos *= 0.95;
+            }
+            // 并发远没用满时延迟不能说明上限合不合适
+            if (inFlightAtCompletion < estimatedLimit / 2) {
+                return;
+            }
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, longRttNanos / shortRttNanos));
+            double queueSize = Math.sqrt(estimatedLimit);
+            double newLimit = estimatedLimit * gradient + queueSize;
+            newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+            int previousLimit = limit;
+            limit = (int) estimatedLimit;
+            if (limit > previousLimit) {
+                signalWaiters(true);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public double getShortRttMillis() {
+        return shortRttNanos / 1_000_000;
+    }
+
+    public double getLongRttMillis() {
+        return longRttNanos / 1_000_000;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public BulkheadConfig getBulkheadConfig() {
+        return config;
+    }
+
+    @Override
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    @Override
+    public EventPublisher getEventPublisher() {
+        return eventProcessor;
+    }
+
+    private void publish(BulkheadEvent event) {
+        if (eventProcessor.hasConsumers()) {
+            eventProcessor.processEvent(event);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AdaptiveBulkhead '" + name + "', limit " + limit + ", in flight " + inFlight.get();
+    }
+
+    private final class AdaptiveBulkheadMetrics implements Metrics {
+
+        @Override
+        public int getAvailableConcurrentCalls() {
+            return Math.max(0, limit - inFlight.get());
+        }
+
+        @Override
+        public int getMaxAllowedConcurrentCalls() {
+            return limit;
+        }
+
+    }
+
+    private static final class BulkheadEventProcessor extends EventProcessor<BulkheadEvent>
+            implements EventPublisher, EventConsumer<BulkheadEvent> {
+
+        @Override
+        public EventPublisher onCallPermitted(EventConsumer<BulkheadOnCallPermittedEvent> eventConsumer) {
+            registerConsumer(BulkheadOnCallPermittedEvent.class.getName(), eventConsumer);
+            return this;
+        }
+
+        @Override
+        public EventPublisher onCallRejected(EventConsumer<BulkheadOnCallRejectedEvent> eventConsumer) {
+            registerConsumer(BulkheadOnCallRejectedEvent.class.getName(), eventConsumer);
+            return this;
+        }
+
+        @Override
+        public EventPublisher onCallFinished(EventConsumer<BulkheadOnCallFinishedEvent> eventConsumer) {
+            registerConsumer(BulkheadOnCallFinishedEvent.class.getName(), eventConsumer);
+            return this;
+        }
+
+        @Override
+        public void consumeEvent(BulkheadEvent event) {
+            super.processEvent(event);
+        }
+
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.wolfman.marathon.concurrent;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Collectors;
+
+/**
+ * 按熔断器名（feignClientName_methodName）自适应的超时时间。
+ * <p>
+ * 每个熔断器记录最近 windowSize 次调用的耗时（来自熔断器的 success/error 事件，超时的调用按超时时长记），
+ * 定时取其中的高百分位乘以 multiplier，限制在 [minTimeout, maxTimeout] 后替换同名 TimeLimiter。
+ * 超时的调用也算样本，连续超时时百分位会贴近当前超时，乘以 multiplier 后超时逐步放宽，不会越收越紧。
+ * <p>
+ * resilience4j.timelimiter.instances 里写死的实例启动时就已存在，保持配置值不调整。
+ */
+@Slf4j
+public class AdaptiveTimeouts implements SmartInitializingSingleton, DisposableBean {
+
+    /**
+     * 新旧超时相差不到这个比例时不替换，避免频繁重建 TimeLimiter。
+     */
+    private static final double MIN_CHANGE = 0.1;
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+
+    private final TimeLimiterRegistry timeLimiterRegistry;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Spec spec;
+
+    private final Map<String, LatencyWindow> windows = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "adaptive-timeouts");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Set<String> staticNames = Set.of();
+
+    public AdaptiveTimeouts(CircuitBreakerRegistry circuitBreakerRegistry, TimeLimiterRegistry timeLimiterRegistry,
+                            MeterRegistry meterRegistry, Spec spec) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.meterRegistry = meterRegistry;
+        this.spec = spec;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        staticNames = timeLimiterRegistry.getAllTimeLimiters().stream()
+                .map(TimeLimiter::getName)
+                .collect(Collectors.toUnmodifiableSet());
+        circuitBreakerRegistry.getEventPublisher()
+                .onEntryAdded(event -> observe(event.getAddedEntry()))
+                .onEntryReplaced(event -> observe(event.getNewEntry()));
+        circuitBreakerRegistry.getAllCircuitBreakers().forEach(this::observe);
+        long interval = spec.refreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void observe(CircuitBreaker circuitBreaker) {
+        String name = circuitBreaker.getName();
+        if (staticNames.contains(name)) {
+            return;
+        }
+        LatencyWindow window = windows.computeIfAbsent(name, key -> {
+            LatencyWindow created = new LatencyWindow(spec.windowSize());
+            Gauge.builder("timelimiter.adaptive.timeout", created, w -> w.timeoutMillis)
+                    .description("Timeout currently applied to the circuit breaker's TimeLimiter")
+                    .tag("name", key)
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            return created;
+        });
+        circuitBreaker.getEventPublisher()
+                .onSuccess(event -> window.record(event.getElapsedDuration().toNanos()))
+                .onError(event -> window.record(event.getElapsedDuration().toNanos()));
+    }
+
+    /**
+     * 重新计算所有熔断器的超时，由定时任务调用。
+     */
+    public void refresh() {
+        windows.forEach((name, window) -> {
+            try {
+                refresh(name, window);
+            } catch (Exception e) {
+                log.warn("refresh adaptive timeout of {} failed", name, e);
+            }
+        });
+    }
+
+    private void refresh(String name, LatencyWindow window) {
+        long percentileNanos = window.percentile(spec.percentile(), spec.minSamples());
+        if (percentileNanos < 0) {
+            return;
+        }
+        TimeLimiter current = timeLimiterRegistry.find(name).orElse(null);
+        if (current == null) {
+            return;
+        }
+        long target = Math.round(percentileNanos * spec.multiplier());
+        target = Math.max(spec.minTimeout().toNanos(), Math.min(spec.maxTimeout().toNanos(), target));
+        Duration timeout = Duration.ofMillis(Math.max(1, TimeUnit.NANOSECONDS.toMillis(target)));
+        Duration currentTimeout = current.getTimeLimiterConfig().getTimeoutDuration();
+        window.timeoutMillis = currentTimeout.toMillis();
+        if (Math.abs(timeout.toMillis() - currentTimeout.toMillis()) < currentTimeout.toMillis() * MIN_CHANGE) {
+            return;
+        }
+        TimeLimiterConfig config = TimeLimiterConfig.from(current.getTimeLimiterConfig())
+                .timeoutDuration(timeout)
+                .build();
+        timeLimiterRegistry.replace(name, TimeLimiter.of(name, config, current.getTags()));
+        window.timeoutMillis = timeout.toMillis();
+        log.info("timeout of {} changed from {} to {}, p{} {}ms", name, currentTimeout, timeout, spec.percentile(),
+                TimeUnit.NANOSECONDS.toMillis(percentileNanos));
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 最近 N 次调用耗时的环形缓冲，写入无锁，计算百分位时复制一份排序。
+     */
+    static final class LatencyWindow {
+
+        private final AtomicLongArray samples;
+
+        private final AtomicLong cursor = new AtomicLong();
+
+        private volatile long timeoutMillis = -1;
+
+        LatencyWindow(int size) {
+            this.samples = new AtomicLongArray(size);
+        }
+
+        void record(long nanos) {
+            samples.lazySet((int) (cursor.getAndIncrement() % samples.length()), nanos);
+        }
+
+        /**
+         * 返回样本的 percentile 分位，样本数不足 minSamples 时返回 -1。
+         */
+        long percentile(double percentile, int minSamples) {
+            int count = (int) Math.min(cursor.get(), samples.length());
+            if (count < minSamples || count == 0) {
+                return -1;
+            }
+            long[] sorted = new long[count];
+            for (int i = 0; i < count; i++) {
+                sorted[i] = samples.get(i);
+            }
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100 * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, rank))];
+        }
+
+    }
+
+    public record Spec(double percentile, double multiplier, Duration minTimeout, Duration maxTimeout,
+                       int windowSize, int minSamples, Duration refreshInterval) {
+    }
+
+}
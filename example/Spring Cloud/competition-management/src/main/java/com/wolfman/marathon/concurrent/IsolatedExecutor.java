@@ -0,0 +1,188 @@
+package com.wolfman.marathon.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.MDC;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 一个 TimeLimiter 实例独占的线程池：固定线程数 + 有界队列，队列满了直接拒绝。
+ * <p>
+ * 任务带上提交线程的 MDC 和请求上下文。返回的 future 被取消或者异常完成（比如 TimeLimiter 超时）时，
+ * 如果 interruptOnCancel 为 true 就中断正在执行的任务。
+ * 指标：timelimiter.executor.queued / active、timelimiter.executor.wait、timelimiter.executor.rejected /
+ * interrupted，都带 name 标签。
+ */
+public class IsolatedExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final boolean interruptOnCancel;
+
+    private final Timer waitTimer;
+
+    private final Counter rejected;
+
+    private final Counter interrupted;
+
+    public IsolatedExecutor(String name, int poolSize, int queueCapacity, boolean virtualThreads,
+                            boolean interruptOnCancel, MeterRegistry meterRegistry) {
+        ThreadFactory threadFactory = virtualThreads
+                ? Thread.ofVirtual().name("timelimiter-" + name + "-", 0).factory()
+                : platformThreads("timelimiter-" + name + "-");
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+        this.interruptOnCancel = interruptOnCancel;
+
+        Gauge.builder("timelimiter.executor.queued", executor, e -> e.getQueue().size())
+                .description("Tasks waiting for a thread of the time limiter's executor")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("timelimiter.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Tasks running on the time limiter's executor")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("timelimiter.executor.wait")
+                .description("Time tasks spent queued before they started")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("timelimiter.executor.rejected")
+                .description("Tasks rejected because the queue was full")
+                .tag("name", name)
+                .register(meterRegistry);
+        this.interrupted = Counter.builder("timelimiter.executor.interrupted")
+                .description("Running tasks interrupted after their future was cancelled or timed out")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Run run = new Run();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        long submitted = System.nanoTime();
+        Runnable task = () -> {
+            waitTimer.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+            if (!run.start(future)) {
+                return;
+            }
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            setMdc(mdc);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+                setMdc(previousMdc);
+                run.finish();
+                // 线程会被复用，清掉取消时可能留下的中断标记；finish 之后不会再有针对这个任务的中断
+                Thread.interrupted();
+            }
+        };
+        if (interruptOnCancel) {
+            future.whenComplete((value, e) -> {
+                if (e != null && run.interrupt()) {
+                    interrupted.increment();
+                }
+            });
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static void setMdc(Map<String, String> mdc) {
+        if (mdc == null) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(mdc);
+        }
+    }
+
+    /**
+     * 一次任务执行的线程归属。和 FutureTask.cancel(true) 一样，中断在锁里进行，任务结束也要拿同一把锁，
+     * 所以中断只会落在这个任务上，不会打到线程接下来执行的任务。
+     */
+    private static final class Run {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private Thread thread;
+
+        /**
+         * future 已经完成（取消或超时）时返回 false，任务不再执行。
+         */
+        boolean start(CompletableFuture<?> future) {
+            lock.lock();
+            try {
+                if (future.isDone()) {
+                    return false;
+                }
+                thread = Thread.currentThread();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void finish() {
+            lock.lock();
+            try {
+                thread = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean interrupt() {
+            lock.lock();
+            try {
+                if (thread == null) {
+                    return false;
+                }
+                thread.interrupt();
+                thread = null;
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+    }
+
+    private static ThreadFactory platformThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.wolfman.marathon.concurrent;
+
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 每个 TimeLimiter 实例一个 {@link IsolatedExecutor}，第一次使用时按 customer.timelimiter 的配置创建。
+ * 是否中断运行中的任务取自这个实例的 cancelRunningFuture。
+ * <p>
+ * 用法：{@code @TimeLimiter(name = "backendA")} 的方法里用
+ * {@code timeLimiterExecutors.supplyAsync("backendA", ...)} 代替 {@code CompletableFuture.supplyAsync(...)}。
+ */
+public class TimeLimiterExecutors implements DisposableBean {
+
+    private final Map<String, IsolatedExecutor> executors = new ConcurrentHashMap<>();
+
+    private final TimeLimiterRegistry timeLimiterRegistry;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Spec> specs;
+
+    private final Spec defaultSpec;
+
+    public TimeLimiterExecutors(TimeLimiterRegistry timeLimiterRegistry, MeterRegistry meterRegistry,
+                                Map<String, Spec> specs, Spec defaultSpec) {
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.meterRegistry = meterRegistry;
+        this.specs = specs;
+        this.defaultSpec = defaultSpec;
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(String timeLimiterName, Supplier<T> supplier) {
+        return executor(timeLimiterName).supplyAsync(supplier);
+    }
+
+    public IsolatedExecutor executor(String timeLimiterName) {
+        return executors.computeIfAbsent(timeLimiterName, name -> {
+            Spec spec = specs.getOrDefault(name, defaultSpec);
+            boolean cancelRunningFuture = timeLimiterRegistry.timeLimiter(name).getTimeLimiterConfig()
+                    .shouldCancelRunningFuture();
+            return new IsolatedExecutor(name, spec.poolSize(), spec.queueCapacity(), spec.virtualThreads(),
+                    cancelRunningFuture, meterRegistry);
+        });
+    }
+
+    @Override
+    public void destroy() {
+        executors.values().forEach(IsolatedExecutor::shutdown);
+    }
+
+    public record Spec(int poolSize, int queueCapacity, boolean virtualThreads) {
+    }
+
+}
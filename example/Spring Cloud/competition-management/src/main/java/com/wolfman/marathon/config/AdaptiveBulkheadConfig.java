@@ -0,0 +1,86 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.concurrent.AdaptiveBulkhead;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 把 customer.bulkhead.adaptive 里配置的 bulkhead 换成 {@link AdaptiveBulkhead}。
+ * 初始上限取 resilience4j.bulkhead 里这个实例的 max-concurrent-calls，等待时间仍然是 max-wait-duration。
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(AdaptiveBulkheadConfig.AdaptiveBulkheadProperties.class)
+public class AdaptiveBulkheadConfig {
+
+    @Bean
+    public SmartInitializingSingleton adaptiveBulkheadRegistrar(BulkheadRegistry bulkheadRegistry, MeterRegistry meterRegistry,
+                                                                AdaptiveBulkheadProperties properties) {
+        return () -> properties.getAdaptive().forEach((name, limits) -> {
+            Bulkhead semaphoreBulkhead = bulkheadRegistry.bulkhead(name);
+            AdaptiveBulkhead bulkhead = new AdaptiveBulkhead(name, semaphoreBulkhead.getBulkheadConfig(),
+                    limits.getMinLimit(), limits.getMaxLimit(), limits.getSmoothing(), semaphoreBulkhead.getTags());
+            bulkheadRegistry.replace(name, bulkhead);
+            Gauge.builder("bulkhead.adaptive.limit", bulkhead, AdaptiveBulkhead::getLimit)
+                    .description("Current concurrency limit of the adaptive bulkhead")
+                    .tag("name", name)
+                    .register(meterRegistry);
+            Gauge.builder("bulkhead.adaptive.in.flight", bulkhead, AdaptiveBulkhead::getInFlight)
+                    .description("Calls currently admitted by the adaptive bulkhead")
+                    .tag("name", name)
+                    .register(meterRegistry);
+            Gauge.builder("bulkhead.adaptive.rtt", bulkhead, AdaptiveBulkhead::getShortRttMillis)
+                    .description("Short-term latency the adaptive bulkhead compares with its baseline")
+                    .tag("name", name)
+                    .tag("window", "short")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            Gauge.builder("bulkhead.adaptive.rtt", bulkhead, AdaptiveBulkhead::getLongRttMillis)
+                    .description("Long-term latency baseline of the adaptive bulkhead")
+                    .tag("name", name)
+                    .tag("window", "long")
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+            log.info("bulkhead {} is adaptive, limit {} within [{}, {}]", name, bulkhead.getLimit(),
+                    limits.getMinLimit(), limits.getMaxLimit());
+        });
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "customer.bulkhead")
+    public static class AdaptiveBulkheadProperties {
+
+        /**
+         * 按 bulkhead 实例名配置的自适应上限。
+         */
+        private Map<String, Limits> adaptive = new LinkedHashMap<>();
+
+    }
+
+    @Data
+    public static class Limits {
+
+        private int minLimit = 1;
+
+        private int maxLimit = 200;
+
+        /**
+         * 每次调整时新上限所占的权重，0 到 1。
+         */
+        private double smoothing = 0.2;
+
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.concurrent.AdaptiveTimeouts;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Feign 熔断器的超时按各自最近的耗时自适应，见 {@link AdaptiveTimeouts}。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "customer.timelimiter.adaptive", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(AdaptiveTimeoutConfig.AdaptiveTimeoutProperties.class)
+public class AdaptiveTimeoutConfig {
+
+    @Bean
+    public AdaptiveTimeouts adaptiveTimeouts(CircuitBreakerRegistry circuitBreakerRegistry, TimeLimiterRegistry timeLimiterRegistry,
+                                             MeterRegistry meterRegistry, AdaptiveTimeoutProperties properties) {
+        return new AdaptiveTimeouts(circuitBreakerRegistry, timeLimiterRegistry, meterRegistry, properties.toSpec());
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "customer.timelimiter.adaptive")
+    public static class AdaptiveTimeoutProperties {
+
+        private boolean enabled = false;
+
+        /**
+         * 取最近耗时的哪个百分位。
+         */
+        private double percentile = 99;
+
+        /**
+         * 超时 = 百分位耗时 * multiplier。
+         */
+        private double multiplier = 1.5;
+
+        private Duration minTimeout = Duration.ofMillis(200);
+
+        private Duration maxTimeout = Duration.ofSeconds(30);
+
+        /**
+         * 每个熔断器保留的最近调用数。
+         */
+        private int windowSize = 256;
+
+        /**
+         * 样本数达到这个值才开始调整，之前使用配置的超时。
+         */
+        private int minSamples = 20;
+
+        private Duration refreshInterval = Duration.ofSeconds(5);
+
+        AdaptiveTimeouts.Spec toSpec() {
+            return new AdaptiveTimeouts.Spec(percentile, multiplier, minTimeout, maxTimeout, windowSize, minSamples,
+                    refreshInterval);
+        }
+
+    }
+
+}
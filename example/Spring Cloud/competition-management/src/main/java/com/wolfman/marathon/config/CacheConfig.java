@@ -0,0 +1,71 @@
+package com.wolfman.marathon.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 用 Caffeine 替换默认的 ConcurrentMapCacheManager：每个缓存有容量上限和过期时间，
+ * 淘汰策略是 W-TinyLFU（按访问频率决定新条目能不能挤掉旧条目），并记录命中、未命中、淘汰统计。
+ * <p>
+ * customer.cache.specs 里配置的缓存启动时就创建，actuator 会把它们绑定到 cache.gets、cache.evictions 等指标；
+ * 没有配置的缓存名按 customer.cache.default 动态创建。
+ */
+@Configuration
+@EnableConfigurationProperties(CacheConfig.CacheProperties.class)
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties properties) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setAllowNullValues(false);
+        cacheManager.setCaffeine(caffeine(properties.getDefaultSpec()));
+        properties.getSpecs().forEach((name, spec) -> cacheManager.registerCustomCache(name, caffeine(spec).build()));
+        return cacheManager;
+    }
+
+    private static Caffeine<Object, Object> caffeine(Spec spec) {
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
+                .maximumSize(spec.getMaximumSize())
+                .recordStats();
+        if (spec.getExpireAfterWrite() != null) {
+            caffeine.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        return caffeine;
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "customer.cache")
+    public static class CacheProperties {
+
+        /**
+         * 没有单独配置的缓存使用的规格。
+         */
+        private Spec defaultSpec = new Spec();
+
+        /**
+         * 按缓存名配置的规格。
+         */
+        private Map<String, Spec> specs = new LinkedHashMap<>();
+
+    }
+
+    @Data
+    public static class Spec {
+
+        private long maximumSize = 10_000;
+
+        private Duration expireAfterWrite = Duration.ofMinutes(10);
+
+    }
+
+}
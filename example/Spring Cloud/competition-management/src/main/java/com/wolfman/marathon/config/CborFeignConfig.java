@@ -0,0 +1,41 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.feign.CborEncoder;
+import feign.RequestInterceptor;
+import feign.codec.Encoder;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.http.HttpMessageConverters;
+import org.springframework.cloud.openfeign.support.SpringEncoder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * CustomerManagementClient 的 CBOR 编码配置，只在这个 Feign 客户端里生效，所以不加 @Configuration。
+ * <p>
+ * 请求体按 CBOR 编码，返回 DTO 的方法 Accept 优先 CBOR、其次 JSON，响应由 SpringDecoder 按 Content-Type 解码，
+ * 服务端返回 JSON 也能正常处理。返回 String 的方法不带 CBOR 的 Accept，服务端按 text/plain 返回原始文本，
+ * 否则 StringHttpMessageConverter 会把纯文本标成 application/cbor。customer.feign.cbor.enabled=false 时退回纯 JSON。
+ */
+@ConditionalOnProperty(name = "customer.feign.cbor.enabled", havingValue = "true", matchIfMissing = true)
+public class CborFeignConfig {
+
+    private static final String ACCEPT = MediaType.APPLICATION_CBOR_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+
+    @Bean
+    public Encoder feignEncoder(ObjectFactory<HttpMessageConverters> messageConverters) {
+        return new CborEncoder(new SpringEncoder(messageConverters));
+    }
+
+    @Bean
+    public RequestInterceptor cborAcceptInterceptor() {
+        return template -> {
+            if (template.methodMetadata().returnType() != String.class
+                    && !template.headers().containsKey(HttpHeaders.ACCEPT)) {
+                template.header(HttpHeaders.ACCEPT, ACCEPT);
+            }
+        };
+    }
+
+}
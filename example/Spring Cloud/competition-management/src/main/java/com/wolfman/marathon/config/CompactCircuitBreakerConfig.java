@@ -0,0 +1,73 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.circuitbreaker.CompactCircuitBreaker;
+import com.wolfman.marathon.circuitbreaker.CompactCircuitBreakerFactory;
+import com.wolfman.marathon.circuitbreaker.CompactCircuitBreakerRegistry;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * 打开后 Feign 熔断用 {@link CompactCircuitBreakerFactory}，Resilience4JCircuitBreakerFactory 不再创建
+ * （它是 @ConditionalOnMissingBean），Feign 调用也就不再经过 resilience4j 的 TimeLimiter 和自适应超时。
+ * {@code @Bulkhead}、{@code @RateLimiter} 等注解不受影响。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "customer.circuitbreaker.compact", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(CompactCircuitBreakerConfig.CompactCircuitBreakerProperties.class)
+public class CompactCircuitBreakerConfig {
+
+    @Bean
+    public CompactCircuitBreakerFactory compactCircuitBreakerFactory(CompactCircuitBreakerProperties properties,
+                                                                     MeterRegistry meterRegistry) {
+        CompactCircuitBreakerFactory factory = new CompactCircuitBreakerFactory(properties.toConfig(), properties.getIdleTimeout());
+        CompactCircuitBreakerRegistry registry = factory.getRegistry();
+        Gauge.builder("circuitbreaker.compact.instances", registry, CompactCircuitBreakerRegistry::size)
+                .description("Compact circuit breakers currently held in the registry")
+                .register(meterRegistry);
+        FunctionCounter.builder("circuitbreaker.compact.evicted", registry, CompactCircuitBreakerRegistry::getEvicted)
+                .description("Idle compact circuit breakers dropped from the registry")
+                .register(meterRegistry);
+        return factory;
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "customer.circuitbreaker.compact")
+    public static class CompactCircuitBreakerProperties {
+
+        private boolean enabled = false;
+
+        /**
+         * 计数窗口大小，最大 32。
+         */
+        private int slidingWindowSize = 20;
+
+        private int minimumNumberOfCalls = 3;
+
+        private float failureRateThreshold = 20;
+
+        private Duration waitDurationInOpenState = Duration.ofSeconds(60);
+
+        private int permittedNumberOfCallsInHalfOpenState = 10;
+
+        /**
+         * 多久没有调用的熔断器从注册表里清掉。
+         */
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        CompactCircuitBreaker.Config toConfig() {
+            return new CompactCircuitBreaker.Config(slidingWindowSize, minimumNumberOfCalls, failureRateThreshold,
+                    waitDurationInOpenState, permittedNumberOfCallsInHalfOpenState);
+        }
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.concurrent.TimeLimiterExecutors;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(TimeLimiterExecutorConfig.TimeLimiterExecutorProperties.class)
+public class TimeLimiterExecutorConfig {
+
+    @Bean
+    public TimeLimiterExecutors timeLimiterExecutors(TimeLimiterRegistry timeLimiterRegistry, MeterRegistry meterRegistry,
+                                                     TimeLimiterExecutorProperties properties) {
+        Map<String, TimeLimiterExecutors.Spec> specs = new LinkedHashMap<>();
+        properties.getExecutors().forEach((name, spec) -> specs.put(name, spec.toSpec()));
+        return new TimeLimiterExecutors(timeLimiterRegistry, meterRegistry, specs, properties.getDefaultExecutor().toSpec());
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "customer.timelimiter")
+    public static class TimeLimiterExecutorProperties {
+
+        /**
+         * 没有单独配置的 TimeLimiter 实例使用的线程池。
+         */
+        private Executor defaultExecutor = new Executor();
+
+        /**
+         * 按 TimeLimiter 实例名配置的线程池。
+         */
+        private Map<String, Executor> executors = new LinkedHashMap<>();
+
+    }
+
+    @Data
+    public static class Executor {
+
+        private int poolSize = 16;
+
+        private int queueCapacity = 100;
+
+        /**
+         * 用虚拟线程执行任务，阻塞时不占用平台线程。
+         */
+        private boolean virtualThreads = false;
+
+        TimeLimiterExecutors.Spec toSpec() {
+            return new TimeLimiterExecutors.Spec(poolSize, queueCapacity, virtualThreads);
+        }
+
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.loadbalancer.ZoneAffinityLoadBalancerConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "customer.loadbalancer.zone-affinity.enabled", havingValue = "true", matchIfMissing = true)
+@LoadBalancerClient(name = "customer-management", configuration = ZoneAffinityLoadBalancerConfiguration.class)
+public class ZoneAffinityLoadBalancerConfig {
+}
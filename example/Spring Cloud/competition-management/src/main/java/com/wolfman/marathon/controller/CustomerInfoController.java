@@ -3,7 +3,9 @@ package com.wolfman.marathon.controller;
 import com.wolfman.marathon.dto.CustomerInfoDTO;
 import com.wolfman.marathon.dto.CustomerRequestParams;
 import com.wolfman.marathon.feign.CustomerManagementClient;
+import com.wolfman.marathon.service.CustomerInfoCollapser;
 import com.wolfman.marathon.service.CustomerInfoService;
+import com.wolfman.marathon.service.CustomerManagementAsyncClient;
 import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +14,9 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 
 @Slf4j
@@ -25,6 +30,12 @@ public class CustomerInfoController {
     @Autowired
     private CustomerInfoService customerInfoService;
 
+    @Autowired
+    private CustomerInfoCollapser customerInfoCollapser;
+
+    @Autowired
+    private CustomerManagementAsyncClient customerManagementAsyncClient;
+
     @RequestMapping("/detail/{id}")
 //    @Bulkhead(name = "backendA", fallbackMethod = "myBulkheadFallback", type = Bulkhead.Type.SEMAPHORE)
     public CustomerInfoDTO getCustomerDetailInfo(@PathVariable("id") String id) {
@@ -34,6 +45,40 @@ public class CustomerInfoController {
         return customerInfoDTO;
     }
 
+    @RequestMapping("/list")
+    public List<CustomerInfoDTO> getCustomerInfoList(@RequestParam("ids") List<String> ids) {
+        List<CompletableFuture<CustomerInfoDTO>> futures = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            futures.add(customerInfoCollapser.getCustomerInfo(id));
+        }
+        List<CustomerInfoDTO> customerInfos = new ArrayList<>(ids.size());
+        for (CompletableFuture<CustomerInfoDTO> future : futures) {
+            customerInfos.add(future.join());
+        }
+        log.info("customerInfos size:{}", customerInfos.size());
+        return customerInfos;
+    }
+
+    /**
+     * 并发调用每个 id，返回 CompletableFuture 让 servlet 线程立即释放，全部返回后再写响应。
+     */
+    @RequestMapping("/details")
+    public CompletableFuture<List<CustomerInfoDTO>> getCustomerDetailInfos(@RequestParam("ids") List<String> ids) {
+        List<CompletableFuture<CustomerInfoDTO>> futures = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            futures.add(customerManagementAsyncClient.getCustomerInfo(id));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    List<CustomerInfoDTO> customerInfos = new ArrayList<>(futures.size());
+                    for (CompletableFuture<CustomerInfoDTO> future : futures) {
+                        customerInfos.add(future.join());
+                    }
+                    log.info("customerInfos size:{}", customerInfos.size());
+                    return customerInfos;
+                });
+    }
+
     public CustomerInfoDTO myBulkheadFallback(Throwable excetpion) {
         log.info(excetpion.getMessage());
         return CustomerInfoDTO.builder().build();
@@ -15,4 +15,11 @@ public class CustomerInfoDTO {
 
     private String customerName;
 
+    private String phone;
+
+    /**
+     * customer-management 不可用时返回的最近一次成功数据。
+     */
+    private boolean stale;
+
 }
@@ -0,0 +1,30 @@
+package com.wolfman.marathon.feign;
+
+import feign.RequestTemplate;
+import feign.codec.EncodeException;
+import feign.codec.Encoder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.lang.reflect.Type;
+
+/**
+ * 没有显式指定 Content-Type 的请求体用 CBOR 编码，实际的序列化仍由 SpringEncoder 按 Content-Type 选择转换器。
+ */
+public class CborEncoder implements Encoder {
+
+    private final Encoder delegate;
+
+    public CborEncoder(Encoder delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void encode(Object object, Type bodyType, RequestTemplate template) throws EncodeException {
+        if (!template.headers().containsKey(HttpHeaders.CONTENT_TYPE)) {
+            template.header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_CBOR_VALUE);
+        }
+        delegate.encode(object, bodyType, template);
+    }
+
+}
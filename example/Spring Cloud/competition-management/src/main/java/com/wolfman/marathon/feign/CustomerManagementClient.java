@@ -1,5 +1,6 @@
 package com.wolfman.marathon.feign;
 
+import com.wolfman.marathon.config.CborFeignConfig;
 import com.wolfman.marathon.config.FeignLogConfig;
 import com.wolfman.marathon.dto.CustomerInfoDTO;
 import com.wolfman.marathon.dto.CustomerRequestParams;
@@ -9,22 +10,29 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.cloud.openfeign.SpringQueryMap;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.List;
+
 @FeignClient(name = "customer-management",
         contextId = "customerManagementClient",
-        fallback = CustomerManagementClientFallback.class,
         fallbackFactory = CustomerManagementClientFallbackFactory.class,
-        configuration = FeignLogConfig.class
+        configuration = {FeignLogConfig.class, CborFeignConfig.class}
 )
 public interface CustomerManagementClient {
 
     @RequestMapping("/customer/{id}")
+    @Cacheable(cacheNames = "customer-info", key = "#id", unless = "#result == null || #result.id == null || #result.stale")
     CustomerInfoDTO getCustomerInfo(@PathVariable("id") String id);
 
+    @PostMapping("/customer/batch")
+    List<CustomerInfoDTO> getCustomerInfos(@RequestBody List<String> ids);
+
     @GetMapping("/customer/default-customer-name")
-    @Cacheable(cacheNames = "demo-cache", key = "#name")
+    @Cacheable(cacheNames = "demo-cache", key = "#name", unless = "#result == null")
     String defaultCustomerName(@RequestParam("name") String name);
 
     @GetMapping(path = "/customer/check-existed")
@@ -6,6 +6,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 
+import java.util.Collections;
+import java.util.List;
+
 @Slf4j
 @Component
 public class CustomerManagementClientFallback implements CustomerManagementClient {
@@ -15,6 +18,11 @@ public class CustomerManagementClientFallback implements CustomerManagementClien
         return null;
     }
 
+    @Override
+    public List<CustomerInfoDTO> getCustomerInfos(List<String> ids) {
+        return Collections.emptyList();
+    }
+
     @Override
     public String defaultCustomerName(String name) {
         return null;
@@ -1,16 +1,32 @@
 package com.wolfman.marathon.feign;
 
+import feign.FeignException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.openfeign.FallbackFactory;
 import org.springframework.stereotype.Component;
 
 @Slf4j
 @Component
-public class CustomerManagementClientFallbackFactory implements FallbackFactory<FallbackWithFactory> {
+public class CustomerManagementClientFallbackFactory implements FallbackFactory<CustomerManagementClient> {
+
+    private final LastKnownGoodStore lastKnownGoodStore;
+
+    private final boolean staleEnabled;
+
+    public CustomerManagementClientFallbackFactory(LastKnownGoodStore lastKnownGoodStore,
+                                                   @Value("${customer.fallback.stale.enabled:true}") boolean staleEnabled) {
+        this.lastKnownGoodStore = lastKnownGoodStore;
+        this.staleEnabled = staleEnabled;
+    }
 
     @Override
-    public FallbackWithFactory create(Throwable cause) {
+    public CustomerManagementClient create(Throwable cause) {
         log.error("fallback reason was {}", cause.getMessage());
+        // 4xx 是请求本身的问题，不用旧数据掩盖；熔断打开、超时、连接失败和 5xx 返回旧数据
+        if (staleEnabled && !(cause instanceof FeignException.FeignClientException)) {
+            return new StaleOnErrorFallback(lastKnownGoodStore, new FallbackWithFactory());
+        }
         return new FallbackWithFactory();
     }
 
@@ -4,6 +4,8 @@ import com.wolfman.marathon.dto.CustomerInfoDTO;
 import com.wolfman.marathon.dto.CustomerRequestParams;
 
 import java.time.LocalTime;
+import java.util.Collections;
+import java.util.List;
 
 public class FallbackWithFactory implements CustomerManagementClient {
 
@@ -13,6 +15,11 @@ public class FallbackWithFactory implements CustomerManagementClient {
         return new CustomerInfoDTO();
     }
 
+    @Override
+    public List<CustomerInfoDTO> getCustomerInfos(List<String> ids) {
+        return Collections.emptyList();
+    }
+
     @Override
     public String defaultCustomerName(String name) {
         return null;
@@ -0,0 +1,68 @@
+package com.wolfman.marathon.feign;
+
+import com.wolfman.marathon.dto.CustomerInfoDTO;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+/**
+ * 记录 CustomerManagementClient 的成功响应。降级返回的旧数据不记录，
+ * 而是给当前 HTTP 响应加上 Warning: 110 头，告诉调用方数据可能过期。
+ */
+@Slf4j
+@Aspect
+@Component
+public class LastKnownGoodAspect {
+
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
+    private final LastKnownGoodStore lastKnownGoodStore;
+
+    public LastKnownGoodAspect(LastKnownGoodStore lastKnownGoodStore) {
+        this.lastKnownGoodStore = lastKnownGoodStore;
+    }
+
+    @AfterReturning(pointcut = "execution(* com.wolfman.marathon.feign.CustomerManagementClient.*(..))", returning = "result")
+    public void afterReturning(JoinPoint joinPoint, Object result) {
+        // 只处理 Feign 生成的代理，降级实现类也实现了这个接口
+        if (!Proxy.isProxyClass(joinPoint.getTarget().getClass())) {
+            return;
+        }
+        if (LastKnownGoodStore.consumeServedStale()) {
+            markResponseStale();
+            return;
+        }
+        if (result == null) {
+            return;
+        }
+        String method = joinPoint.getSignature().getName();
+        lastKnownGoodStore.put(method, joinPoint.getArgs(), result);
+        // 批量结果按单个 id 保存，降级时可以按任意 id 组合拼出来
+        if (result instanceof List<?> customerInfos) {
+            for (Object customerInfo : customerInfos) {
+                if (customerInfo instanceof CustomerInfoDTO dto && dto.getId() != null) {
+                    lastKnownGoodStore.put("getCustomerInfo", new Object[]{dto.getId()}, dto);
+                }
+            }
+        }
+    }
+
+    private static void markResponseStale() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.addHeader(HttpHeaders.WARNING, STALE_WARNING);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package com.wolfman.marathon.feign;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CustomerManagementClient 最近一次成功响应，按方法名 + 参数保存，容量和保存时间有上限。
+ * customer-management 不可用时 {@link StaleOnErrorFallback} 从这里取数据。
+ */
+@Component
+public class LastKnownGoodStore {
+
+    private static final ThreadLocal<Boolean> SERVED_STALE = new ThreadLocal<>();
+
+    private final Cache<Key, Object> responses;
+
+    public LastKnownGoodStore(@Value("${customer.fallback.stale.maximum-size:100000}") long maximumSize,
+                              @Value("${customer.fallback.stale.max-age:24h}") Duration maxAge) {
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(maxAge)
+                .build();
+    }
+
+    public void put(String method, Object[] args, Object response) {
+        responses.put(new Key(method, Arrays.asList(args)), response);
+    }
+
+    public Object get(String method, Object... args) {
+        return responses.getIfPresent(new Key(method, Arrays.asList(args)));
+    }
+
+    public long size() {
+        return responses.estimatedSize();
+    }
+
+    /**
+     * 降级时标记当前线程拿到的是旧数据，由 {@link LastKnownGoodAspect} 读取并清除。
+     * 熔断器的降级函数在调用线程执行，所以 ThreadLocal 可靠。
+     */
+    static void markServedStale() {
+        SERVED_STALE.set(Boolean.TRUE);
+    }
+
+    static boolean consumeServedStale() {
+        boolean stale = SERVED_STALE.get() != null;
+        SERVED_STALE.remove();
+        return stale;
+    }
+
+    private record Key(String method, List<Object> args) {
+    }
+
+}
@@ -0,0 +1,84 @@
+package com.wolfman.marathon.feign;
+
+import com.wolfman.marathon.dto.CustomerInfoDTO;
+import com.wolfman.marathon.dto.CustomerRequestParams;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 返回 {@link LastKnownGoodStore} 里的最近一次成功响应，客户信息带 stale 标记；
+ * 没有旧数据时交给 {@link FallbackWithFactory}。
+ */
+@Slf4j
+public class StaleOnErrorFallback implements CustomerManagementClient {
+
+    private final LastKnownGoodStore lastKnownGoodStore;
+
+    private final CustomerManagementClient delegate;
+
+    public StaleOnErrorFallback(LastKnownGoodStore lastKnownGoodStore, CustomerManagementClient delegate) {
+        this.lastKnownGoodStore = lastKnownGoodStore;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public CustomerInfoDTO getCustomerInfo(String id) {
+        CustomerInfoDTO customerInfo = (CustomerInfoDTO) lastKnownGoodStore.get("getCustomerInfo", id);
+        if (customerInfo == null) {
+            return delegate.getCustomerInfo(id);
+        }
+        LastKnownGoodStore.markServedStale();
+        return stale(customerInfo);
+    }
+
+    @Override
+    public List<CustomerInfoDTO> getCustomerInfos(List<String> ids) {
+        List<CustomerInfoDTO> customerInfos = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            CustomerInfoDTO customerInfo = (CustomerInfoDTO) lastKnownGoodStore.get("getCustomerInfo", id);
+            if (customerInfo != null) {
+                customerInfos.add(stale(customerInfo));
+            }
+        }
+        if (customerInfos.isEmpty()) {
+            return delegate.getCustomerInfos(ids);
+        }
+        LastKnownGoodStore.markServedStale();
+        return customerInfos;
+    }
+
+    @Override
+    public String defaultCustomerName(String name) {
+        return staleOr(lastKnownGoodStore.get("defaultCustomerName", name), delegate.defaultCustomerName(name));
+    }
+
+    @Override
+    public String checkExisted(CustomerRequestParams params) {
+        return staleOr(lastKnownGoodStore.get("checkExisted", params), delegate.checkExisted(params));
+    }
+
+    @Override
+    public String checkCircuitBreaker() {
+        return staleOr(lastKnownGoodStore.get("checkCircuitBreaker"), delegate.checkCircuitBreaker());
+    }
+
+    private static String staleOr(Object stale, String fallback) {
+        if (stale == null) {
+            return fallback;
+        }
+        LastKnownGoodStore.markServedStale();
+        return (String) stale;
+    }
+
+    private static CustomerInfoDTO stale(CustomerInfoDTO customerInfo) {
+        return CustomerInfoDTO.builder()
+                .id(customerInfo.getId())
+                .customerName(customerInfo.getCustomerName())
+                .phone(customerInfo.getPhone())
+                .stale(true)
+                .build();
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.wolfman.marathon.loadbalancer;
+
+import com.alibaba.cloud.nacos.NacosDiscoveryProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.loadbalancer.config.LoadBalancerZoneConfig;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+
+/**
+ * customer-management 的负载均衡客户端配置，通过 @LoadBalancerClient 注册，
+ * 故意不加 @Configuration，只在这个客户端的子容器里生效。
+ * <p>
+ * 自己的 zone 先取 spring.cloud.loadbalancer.zone，没有再取 Nacos 注册的 metadata.zone。
+ */
+public class ZoneAffinityLoadBalancerConfiguration {
+
+    @Bean
+    public ZoneInstanceStats zoneInstanceStats(@Value("${customer.loadbalancer.zone-affinity.max-in-flight:64}") int maxInFlight,
+                                               @Value("${customer.loadbalancer.zone-affinity.failure-threshold:3}") int failureThreshold,
+                                               @Value("${customer.loadbalancer.zone-affinity.ejection:10s}") Duration ejection) {
+        return new ZoneInstanceStats(maxInFlight, failureThreshold, ejection);
+    }
+
+    @Bean
+    public ServiceInstanceListSupplier zoneAffinityServiceInstanceListSupplier(ConfigurableApplicationContext context,
+                                                                               LoadBalancerZoneConfig zoneConfig,
+                                                                               ObjectProvider<NacosDiscoveryProperties> nacosDiscoveryProperties,
+                                                                               ZoneInstanceStats zoneInstanceStats) {
+        String zone = zoneConfig.getZone();
+        if (zone == null || zone.isEmpty()) {
+            NacosDiscoveryProperties properties = nacosDiscoveryProperties.getIfAvailable();
+            zone = properties == null ? null : properties.getMetadata().get(ZoneAffinityServiceInstanceListSupplier.ZONE);
+        }
+        ServiceInstanceListSupplier delegate = ServiceInstanceListSupplier.builder()
+                .withBlockingDiscoveryClient()
+                .withCaching()
+                .build(context);
+        return new ZoneAffinityServiceInstanceListSupplier(delegate, zone, zoneInstanceStats);
+    }
+
+}
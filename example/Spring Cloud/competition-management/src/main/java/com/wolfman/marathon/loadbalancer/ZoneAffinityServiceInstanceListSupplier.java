@@ -0,0 +1,65 @@
+package com.wolfman.marathon.loadbalancer;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.DelegatingServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 优先返回和调用方同一个 zone（实例 metadata 里的 zone）的实例。
+ * <p>
+ * 和 ZonePreferenceServiceInstanceListSupplier 不同，同 zone 实例都过载或者被摘除时也会溢出到其他 zone
+ * 的可用实例；所有实例都不可用时返回全部实例，由熔断和降级兜底。没有配置自己的 zone 时不做过滤。
+ */
+@Slf4j
+public class ZoneAffinityServiceInstanceListSupplier extends DelegatingServiceInstanceListSupplier {
+
+    public static final String ZONE = "zone";
+
+    private final String zone;
+
+    private final ZoneInstanceStats stats;
+
+    public ZoneAffinityServiceInstanceListSupplier(ServiceInstanceListSupplier delegate, String zone,
+                                                   ZoneInstanceStats stats) {
+        super(delegate);
+        this.zone = zone;
+        this.stats = stats;
+    }
+
+    @Override
+    public Flux<List<ServiceInstance>> get() {
+        return getDelegate().get().map(this::filteredByZone);
+    }
+
+    List<ServiceInstance> filteredByZone(List<ServiceInstance> instances) {
+        if (zone == null || zone.isEmpty()) {
+            return instances;
+        }
+        List<ServiceInstance> local = new ArrayList<>(instances.size());
+        List<ServiceInstance> remote = new ArrayList<>(instances.size());
+        boolean hasLocal = false;
+        for (ServiceInstance instance : instances) {
+            boolean sameZone = zone.equalsIgnoreCase(instance.getMetadata().get(ZONE));
+            hasLocal |= sameZone;
+            if (stats.isAvailable(instance)) {
+                (sameZone ? local : remote).add(instance);
+            }
+        }
+        if (!local.isEmpty()) {
+            return local;
+        }
+        if (!remote.isEmpty()) {
+            if (hasLocal) {
+                log.debug("no available instance of {} in zone {}, spilling over to {}", getServiceId(), zone, remote);
+            }
+            return remote;
+        }
+        return instances;
+    }
+
+}
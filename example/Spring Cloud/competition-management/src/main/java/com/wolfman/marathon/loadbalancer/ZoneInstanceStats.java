@@ -0,0 +1,113 @@
+package com.wolfman.marathon.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 每个实例的在途请求数和连续失败数，由负载均衡生命周期回调维护。
+ * 在途请求达到上限算过载，连续失败达到阈值后在摘除时间内算不健康。
+ */
+public class ZoneInstanceStats implements LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private final ConcurrentHashMap<String, Stat> stats = new ConcurrentHashMap<>();
+
+    private final int maxInFlight;
+
+    private final int failureThreshold;
+
+    private final long ejectionNanos;
+
+    public ZoneInstanceStats(int maxInFlight, int failureThreshold, Duration ejection) {
+        this.maxInFlight = maxInFlight;
+        this.failureThreshold = failureThreshold;
+        this.ejectionNanos = ejection.toNanos();
+    }
+
+    /**
+     * 实例既没有过载也没有被摘除。
+     */
+    public boolean isAvailable(ServiceInstance instance) {
+        Stat stat = stats.get(key(instance));
+        if (stat == null) {
+            return true;
+        }
+        if (stat.inFlight.get() >= maxInFlight) {
+            return false;
+        }
+        return stat.consecutiveFailures < failureThreshold || System.nanoTime() - stat.lastFailureNanos > ejectionNanos;
+    }
+
+    public int getInFlight(ServiceInstance instance) {
+        Stat stat = stats.get(key(instance));
+        return stat == null ? 0 : stat.inFlight.get();
+    }
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (lbResponse.hasServer()) {
+            stats.computeIfAbsent(key(lbResponse.getServer()), key -> new Stat()).inFlight.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        Stat stat = stats.get(key(lbResponse.getServer()));
+        if (stat == null || completionContext.status() == CompletionContext.Status.DISCARD) {
+            return;
+        }
+        stat.inFlight.decrementAndGet();
+        if (isFailure(completionContext)) {
+            stat.lastFailureNanos = System.nanoTime();
+            stat.consecutiveFailures++;
+        } else {
+            stat.consecutiveFailures = 0;
+        }
+    }
+
+    private static boolean isFailure(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            return true;
+        }
+        return completionContext.getClientResponse() instanceof ResponseData response
+                && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError();
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ':' + instance.getPort();
+    }
+
+    private static final class Stat {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * 只用于判断是否摘除，并发更新丢一次计数无所谓，不需要原子操作。
+         */
+        private volatile int consecutiveFailures;
+
+        private volatile long lastFailureNanos;
+
+    }
+
+}
@@ -0,0 +1,238 @@
+package com.wolfman.marathon.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wolfman.marathon.dto.CustomerChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 订阅每个 customer-management 实例的 /customer/changes 事件流，按客户 id 失效 customer-info，
+ * 按修改前后的客户名失效 demo-cache；收到 reset 时清空这两个缓存。
+ * <p>
+ * 每个实例一个后台线程阻塞读事件流，断开后带着 Last-Event-ID 退避重连。实例列表定期从注册中心刷新。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "customer.changes.enabled", havingValue = "true", matchIfMissing = true)
+public class CustomerChangeSubscriber implements DisposableBean {
+
+    private static final String SERVICE_ID = "customer-management";
+
+    private static final String CUSTOMER_INFO_CACHE = "customer-info";
+
+    private static final String DEMO_CACHE = "demo-cache";
+
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final DiscoveryClient discoveryClient;
+
+    private final CacheManager cacheManager;
+
+    private final ObjectMapper objectMapper;
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(
+            runnable -> daemon(runnable, "customer-change-refresher"));
+
+    private volatile boolean running = true;
+
+    public CustomerChangeSubscriber(DiscoveryClient discoveryClient, CacheManager cacheManager, ObjectMapper objectMapper,
+                                    @Value("${customer.changes.refresh-interval:30s}") Duration refreshInterval) {
+        this.discoveryClient = discoveryClient;
+        this.cacheManager = cacheManager;
+        this.objectMapper = objectMapper;
+        refresher.scheduleWithFixedDelay(this::refreshSubscriptions, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        refresher.shutdownNow();
+        subscriptions.values().forEach(subscription -> subscription.thread.interrupt());
+    }
+
+    private void refreshSubscriptions() {
+        try {
+            Map<String, ServiceInstance> instances = discoveryClient.getInstances(SERVICE_ID).stream()
+                    .collect(Collectors.toMap(CustomerChangeSubscriber::key, instance -> instance, (a, b) -> a));
+            for (Iterator<Map.Entry<String, Subscription>> it = subscriptions.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Subscription> entry = it.next();
+                if (!instances.containsKey(entry.getKey())) {
+                    entry.getValue().thread.interrupt();
+                    it.remove();
+                }
+            }
+            instances.forEach((key, instance) -> subscriptions.computeIfAbsent(key, k -> new Subscription(instance)));
+        } catch (Exception e) {
+            log.warn("refresh customer change subscriptions failed", e);
+        }
+    }
+
+    private void onEvent(String name, String data) {
+        if ("reset".equals(name)) {
+            log.info("customer change stream reset, clearing {} and {}", CUSTOMER_INFO_CACHE, DEMO_CACHE);
+            clear(CUSTOMER_INFO_CACHE);
+            clear(DEMO_CACHE);
+            return;
+        }
+        if (!"change".equals(name)) {
+            return;
+        }
+        try {
+            CustomerChangeEvent event = objectMapper.readValue(data, CustomerChangeEvent.class);
+            log.debug("customer changed: {}", event);
+            evict(CUSTOMER_INFO_CACHE, event.getId());
+            Set<String> names = Stream.of(event.getCustomerName(), event.getPreviousCustomerName())
+                    .filter(customerName -> customerName != null)
+                    .collect(Collectors.toSet());
+            names.forEach(customerName -> evict(DEMO_CACHE, customerName));
+        } catch (Exception e) {
+            log.warn("unreadable customer change event, clearing caches: {}", data, e);
+            clear(CUSTOMER_INFO_CACHE);
+            clear(DEMO_CACHE);
+        }
+    }
+
+    private void evict(String cacheName, String key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && key != null) {
+            cache.evict(key);
+        }
+    }
+
+    private void clear(String cacheName) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getHost() + ':' + instance.getPort();
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private final class Subscription {
+
+        private final URI uri;
+
+        private final Thread thread;
+
+        private String lastEventId;
+
+        Subscription(ServiceInstance instance) {
+            this.uri = URI.create(instance.getUri() + "/customer/changes");
+            this.thread = daemon(this::run, "customer-change-" + key(instance));
+            this.thread.start();
+        }
+
+        private void run() {
+            long backoffMillis = 1000;
+            while (running && !Thread.currentThread().isInterrupted()) {
+                try {
+                    stream();
+                    backoffMillis = 1000;
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Exception e) {
+                    log.info("customer change stream {} disconnected: {}", uri, e.toString());
+                }
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, MAX_BACKOFF.toMillis());
+            }
+        }
+
+        private void stream() throws Exception {
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                    .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                    .GET();
+            if (lastEventId != null) {
+                request.header("Last-Event-ID", lastEventId);
+            }
+            HttpResponse<Stream<String>> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofLines());
+            if (response.statusCode() != 200) {
+                response.body().close();
+                throw new IllegalStateException("status " + response.statusCode());
+            }
+            log.info("subscribed to customer changes at {}, lastEventId:{}", uri, lastEventId);
+            try (Stream<String> lines = response.body()) {
+                String id = null;
+                String name = "message";
+                StringBuilder data = new StringBuilder();
+                for (Iterator<String> it = lines.iterator(); it.hasNext(); ) {
+                    String line = it.next();
+                    if (line.isEmpty()) {
+                        if (data.length() > 0 || id != null) {
+                            onEvent(name, data.toString());
+                            if (id != null) {
+                                lastEventId = id;
+                            }
+                        }
+                        id = null;
+                        name = "message";
+                        data.setLength(0);
+                    } else if (line.startsWith("id:")) {
+                        id = value(line);
+                    } else if (line.startsWith("event:")) {
+                        name = value(line);
+                    } else if (line.startsWith("data:")) {
+                        if (data.length() > 0) {
+                            data.append('\n');
+                        }
+                        data.append(value(line));
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+        }
+
+        private String value(String line) {
+            int colon = line.indexOf(':');
+            String value = line.substring(colon + 1);
+            return value.startsWith(" ") ? value.substring(1) : value;
+        }
+
+    }
+
+}
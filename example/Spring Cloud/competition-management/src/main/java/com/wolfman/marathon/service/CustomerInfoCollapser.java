@@ -0,0 +1,120 @@
+package com.wolfman.marathon.service;
+
+import com.wolfman.marathon.dto.CustomerInfoDTO;
+import com.wolfman.marathon.feign.CustomerManagementClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 把并发的 getCustomerInfo 调用合并成一次 /customer/batch 请求。
+ * 第一个请求打开一个窗口，窗口到期或攒够 maxBatchSize 个不同 id 时发送，每个调用方拿到自己 id 对应的结果，
+ * 同一批次内重复的 id 共用一个 future。
+ */
+@Slf4j
+@Component
+public class CustomerInfoCollapser implements DisposableBean {
+
+    private final CustomerManagementClient customerManagementClient;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+            daemonThreads("customer-collapser-timer"));
+
+    private final ExecutorService sender;
+
+    private Map<String, CompletableFuture<CustomerInfoDTO>> pending = new LinkedHashMap<>();
+
+    public CustomerInfoCollapser(CustomerManagementClient customerManagementClient,
+                                 @Value("${customer.collapser.window:5ms}") Duration window,
+                                 @Value("${customer.collapser.max-batch-size:50}") int maxBatchSize,
+                                 @Value("${customer.collapser.senders:4}") int senders) {
+        this.customerManagementClient = customerManagementClient;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.sender = Executors.newFixedThreadPool(senders, daemonThreads("customer-collapser-sender"));
+    }
+
+    public CompletableFuture<CustomerInfoDTO> getCustomerInfo(String id) {
+        CompletableFuture<CustomerInfoDTO> future;
+        Map<String, CompletableFuture<CustomerInfoDTO>> full = null;
+        synchronized (this) {
+            Map<String, CompletableFuture<CustomerInfoDTO>> batch = pending;
+            future = batch.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (batch.size() == 1) {
+                scheduler.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            if (batch.size() >= maxBatchSize) {
+                pending = new LinkedHashMap<>();
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return future;
+    }
+
+    private void flush(Map<String, CompletableFuture<CustomerInfoDTO>> batch) {
+        synchronized (this) {
+            // 窗口到期前已经攒满发送过了
+            if (pending != batch) {
+                return;
+            }
+            pending = new LinkedHashMap<>();
+        }
+        send(batch);
+    }
+
+    private void send(Map<String, CompletableFuture<CustomerInfoDTO>> batch) {
+        sender.execute(() -> {
+            try {
+                List<CustomerInfoDTO> customerInfos = customerManagementClient.getCustomerInfos(new ArrayList<>(batch.keySet()));
+                Map<String, CustomerInfoDTO> byId = new HashMap<>();
+                if (customerInfos != null) {
+                    for (CustomerInfoDTO customerInfo : customerInfos) {
+                        byId.put(customerInfo.getId(), customerInfo);
+                    }
+                }
+                batch.forEach((id, future) -> future.complete(byId.get(id)));
+            } catch (Exception e) {
+                log.error("batch getCustomerInfos failed, size:{}", batch.size(), e);
+                batch.values().forEach(future -> future.completeExceptionally(e));
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+        sender.shutdown();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.wolfman.marathon.service;
 
+import com.wolfman.marathon.concurrent.TimeLimiterExecutors;
 import com.wolfman.marathon.dto.CustomerInfoDTO;
 import com.wolfman.marathon.feign.CustomerManagementClient;
 import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
@@ -8,7 +9,6 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.PathVariable;
 
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 @Slf4j
@@ -18,9 +18,12 @@ public class CustomerInfoService {
     @Autowired
     private CustomerManagementClient customerManagementClient;
 
+    @Autowired
+    private TimeLimiterExecutors timeLimiterExecutors;
+
     @TimeLimiter(name = "backendA")
     public CompletionStage<CustomerInfoDTO> getCustomerDetailInfoV2(@PathVariable("id") String id) {
-        return CompletableFuture.supplyAsync(() -> {
+        return timeLimiterExecutors.supplyAsync("backendA", () -> {
             try {
                 Thread.sleep(30000); // 模拟长时间运行的操作
             } catch (InterruptedException e) {
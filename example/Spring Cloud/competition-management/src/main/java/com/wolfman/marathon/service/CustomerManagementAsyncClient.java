@@ -0,0 +1,86 @@
+package com.wolfman.marathon.service;
+
+import com.wolfman.marathon.dto.CustomerInfoDTO;
+import com.wolfman.marathon.dto.CustomerRequestParams;
+import com.wolfman.marathon.feign.CustomerManagementClient;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * CustomerManagementClient 的异步版本。每次调用在一个虚拟线程上走原来的 Feign 代理，
+ * 所以熔断、降级工厂、@Cacheable 和旧数据标记都保持不变，调用方线程不会阻塞在 OkHttp 上。
+ * <p>
+ * 同时在途的调用数受 customer.feign.async.max-concurrency 限制，避免一次扇出打满下游。
+ */
+@Component
+public class CustomerManagementAsyncClient implements DisposableBean {
+
+    private final CustomerManagementClient customerManagementClient;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("customer-async-", 0).factory());
+
+    private final Semaphore permits;
+
+    public CustomerManagementAsyncClient(CustomerManagementClient customerManagementClient,
+                                         @Value("${customer.feign.async.max-concurrency:256}") int maxConcurrency) {
+        this.customerManagementClient = customerManagementClient;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    public CompletableFuture<CustomerInfoDTO> getCustomerInfo(String id) {
+        return supplyAsync(() -> customerManagementClient.getCustomerInfo(id));
+    }
+
+    public CompletableFuture<List<CustomerInfoDTO>> getCustomerInfos(List<String> ids) {
+        return supplyAsync(() -> customerManagementClient.getCustomerInfos(ids));
+    }
+
+    public CompletableFuture<String> defaultCustomerName(String name) {
+        return supplyAsync(() -> customerManagementClient.defaultCustomerName(name));
+    }
+
+    public CompletableFuture<String> checkExisted(CustomerRequestParams params) {
+        return supplyAsync(() -> customerManagementClient.checkExisted(params));
+    }
+
+    public Mono<CustomerInfoDTO> getCustomerInfoMono(String id) {
+        return Mono.fromFuture(() -> getCustomerInfo(id));
+    }
+
+    public Mono<List<CustomerInfoDTO>> getCustomerInfosMono(List<String> ids) {
+        return Mono.fromFuture(() -> getCustomerInfos(ids));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> call) {
+        // 带上调用方的请求上下文，降级时仍然能给响应加 Warning 头
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        return CompletableFuture.supplyAsync(() -> {
+            permits.acquireUninterruptibly();
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            try {
+                return call.get();
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+                permits.release();
+            }
+        }, executor);
+    }
+
+}
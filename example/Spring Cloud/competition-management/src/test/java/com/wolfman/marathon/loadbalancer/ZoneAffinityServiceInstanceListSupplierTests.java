@@ -0,0 +1,92 @@
+package com.wolfman.marathon.loadbalancer;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ZoneAffinityServiceInstanceListSupplierTests {
+
+    private final ServiceInstance localA = instance("local-a", 9090, "zone-a");
+
+    private final ServiceInstance localB = instance("local-b", 9090, "zone-a");
+
+    private final ServiceInstance remote = instance("remote", 9090, "zone-b");
+
+    private final ZoneInstanceStats stats = new ZoneInstanceStats(1, 2, Duration.ofMinutes(1));
+
+    @Test
+    void prefersInstancesInTheSameZone() {
+        assertThat(instances("zone-a")).containsExactly(localA, localB);
+    }
+
+    @Test
+    void keepsLocalInstancesThatAreStillAvailable() {
+        startRequest(localA);
+
+        assertThat(instances("zone-a")).containsExactly(localB);
+    }
+
+    @Test
+    void spillsOverWhenLocalInstancesAreOverloaded() {
+        startRequest(localA);
+        startRequest(localB);
+
+        assertThat(instances("zone-a")).containsExactly(remote);
+    }
+
+    @Test
+    void spillsOverWhenLocalInstancesAreFailing() {
+        fail(localA, 2);
+        fail(localB, 2);
+
+        assertThat(instances("zone-a")).containsExactly(remote);
+    }
+
+    @Test
+    void returnsEveryInstanceWhenNoneIsAvailable() {
+        startRequest(localA);
+        startRequest(localB);
+        startRequest(remote);
+
+        assertThat(instances("zone-a")).containsExactly(localA, localB, remote);
+    }
+
+    @Test
+    void doesNotFilterWithoutAZone() {
+        assertThat(instances(null)).containsExactly(localA, localB, remote);
+    }
+
+    private List<ServiceInstance> instances(String zone) {
+        ZoneAffinityServiceInstanceListSupplier supplier = new ZoneAffinityServiceInstanceListSupplier(
+                ServiceInstanceListSuppliers.from("customer-management", localA, localB, remote), zone, stats);
+        return supplier.get().blockFirst();
+    }
+
+    private void startRequest(ServiceInstance instance) {
+        stats.onStartRequest(new DefaultRequest<>(), new DefaultResponse(instance));
+    }
+
+    private void fail(ServiceInstance instance, int times) {
+        for (int i = 0; i < times; i++) {
+            startRequest(instance);
+            stats.onComplete(new CompletionContext<>(CompletionContext.Status.FAILED, new DefaultRequest<>(),
+                    new DefaultResponse(instance)));
+        }
+    }
+
+    private static ServiceInstance instance(String host, int port, String zone) {
+        return new DefaultServiceInstance(host + ":" + port, "customer-management", host, port, false,
+                Map.of(ZoneAffinityServiceInstanceListSupplier.ZONE, zone));
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.wolfman.marathon.loadtest;
+
+import com.wolfman.marathon.CustomerManagementApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 慢接口压测：分别用平台线程池和虚拟线程启动 customer-management，
+ * 用固定并发持续请求 /customer/check-circuitbreaker（每次 sleep 10s），比较吞吐和延迟。
+ * <p>
+ * 运行：./gradlew loadTest -Pconcurrency=1000 -Pduration=60s
+ */
+public class SlowHandlerLoadTest {
+
+    private static final String PATH = "/customer/check-circuitbreaker";
+
+    public static void main(String[] args) throws Exception {
+        int concurrency = Integer.parseInt(System.getProperty("concurrency", "1000"));
+        Duration duration = Duration.parse("PT" + System.getProperty("duration", "60s"));
+
+        Result platform = run(false, concurrency, duration);
+        Result virtual = run(true, concurrency, duration);
+
+        System.out.printf("%nslow handler load test, concurrency:%d, duration:%ss%n", concurrency, duration.toSeconds());
+        System.out.println(Result.HEADER);
+        System.out.println(platform.format("platform"));
+        System.out.println(virtual.format("virtual"));
+    }
+
+    private static Result run(boolean virtualThreads, int concurrency, Duration duration) throws Exception {
+        ConfigurableApplicationContext context = SpringApplication.run(CustomerManagementApplication.class,
+                "--server.port=0",
+                "--server.tomcat.threads.max=200",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.cloud.nacos.discovery.enabled=false",
+                "--spring.cloud.service-registry.auto-registration.enabled=false",
+                "--customer.store.path=" + Files.createTempDirectory("customer-store"),
+                "--customer.store.capacity=1024",
+                "--customer.filter.expected-insertions=1024",
+                // 控制器日志走 RequestLog，关掉这个接口的采样，只比较慢接口本身
+                "--customer.request-log.sampling.checkCircuitBreaker=0");
+        try {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            return load(URI.create("http://localhost:" + port + PATH), concurrency, duration);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static Result load(URI uri, int concurrency, Duration duration) throws InterruptedException {
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .executor(clientExecutor)
+                     .connectTimeout(Duration.ofSeconds(5))
+                     .build()) {
+            return load(client, uri, concurrency, duration);
+        }
+    }
+
+    private static Result load(HttpClient client, URI uri, int concurrency, Duration duration) throws InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(duration.multipliedBy(2)).GET().build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        LongAdder completed = new LongAdder();
+        LongAdder failed = new LongAdder();
+        long[] latencies = new long[1 << 20];
+        AtomicLong recorded = new AtomicLong();
+
+        // 客户端每个连接一个虚拟线程，客户端自己不会成为瓶颈
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                clients.execute(() -> {
+                    while (System.nanoTime() < deadline) {
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            // 压测结束后才返回的请求不计入吞吐
+                            if (System.nanoTime() > deadline) {
+                                return;
+                            }
+                            if (response.statusCode() == 200) {
+                                completed.increment();
+                                long index = recorded.getAndIncrement();
+                                if (index < latencies.length) {
+                                    latencies[(int) index] = System.nanoTime() - start;
+                                }
+                            } else {
+                                failed.increment();
+                            }
+                        } catch (Exception e) {
+                            failed.increment();
+                        }
+                    }
+                });
+            }
+            clients.shutdown();
+            clients.awaitTermination(duration.multipliedBy(3).toSeconds(), TimeUnit.SECONDS);
+        }
+        long[] sorted = Arrays.copyOf(latencies, (int) Math.min(recorded.get(), latencies.length));
+        Arrays.sort(sorted);
+        return new Result(completed.sum(), failed.sum(), duration, sorted);
+    }
+
+    private record Result(long completed, long failed, Duration duration, long[] sortedLatencies) {
+
+        static final String HEADER = String.format("%-10s %10s %8s %10s %10s %10s", "threads", "completed", "failed", "req/s", "p50(ms)", "p99(ms)");
+
+        String format(String threads) {
+            return String.format("%-10s %10d %8d %10.1f %10d %10d", threads, completed, failed,
+                    completed / (double) duration.toSeconds(), percentile(0.50), percentile(0.99));
+        }
+
+        long percentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return -1;
+            }
+            int index = (int) Math.min(sortedLatencies.length - 1, Math.ceil(percentile * sortedLatencies.length) - 1);
+            return TimeUnit.NANOSECONDS.toMillis(sortedLatencies[Math.max(index, 0)]);
+        }
+
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.store.MappedCustomerStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+@Configuration
+public class CustomerStoreConfig {
+
+    @Bean(destroyMethod = "close")
+    public MappedCustomerStore mappedCustomerStore(@Value("${customer.store.path:./data/customer-store}") String path,
+                                                   @Value("${customer.store.capacity:1048576}") int capacity) throws IOException {
+        return new MappedCustomerStore(Paths.get(path), capacity);
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.wolfman.marathon.config;
+
+import com.wolfman.marathon.logging.RequestLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(RequestLogConfig.RequestLogProperties.class)
+public class RequestLogConfig {
+
+    @Bean(destroyMethod = "close")
+    public RequestLog requestLog(RequestLogProperties properties, MeterRegistry meterRegistry) {
+        return new RequestLog(properties.getBufferSize(), properties.getSampling(),
+                properties.getDefaultSampling(), meterRegistry);
+    }
+
+    @Data
+    @ConfigurationProperties(prefix = "customer.request-log")
+    public static class RequestLogProperties {
+
+        /**
+         * 环形缓冲区槽位数，必须是 2 的幂。
+         */
+        private int bufferSize = 8192;
+
+        /**
+         * 没有单独配置的接口的采样率。
+         */
+        private double defaultSampling = 1.0;
+
+        /**
+         * 按接口名配置的采样率，0 到 1。
+         */
+        private Map<String, Double> sampling = new HashMap<>();
+
+    }
+
+}
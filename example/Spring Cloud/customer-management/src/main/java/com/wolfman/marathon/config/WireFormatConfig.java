@@ -0,0 +1,40 @@
+package com.wolfman.marathon.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * 请求 Accept: application/cbor 时用 CBOR 编码响应，Content-Type: application/cbor 的请求体用 CBOR 解码。
+ * CBOR 转换器放在 JSON 后面，没有指定 Accept 的调用方仍然拿到 JSON。
+ */
+@Configuration
+public class WireFormatConfig implements WebMvcConfigurer {
+
+    private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    public WireFormatConfig(Jackson2ObjectMapperBuilder objectMapperBuilder) {
+        this.objectMapperBuilder = objectMapperBuilder;
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // 换掉默认的 CBOR 转换器，和 JSON 共用 Spring Boot 的 Jackson 配置
+        converters.removeIf(MappingJackson2CborHttpMessageConverter.class::isInstance);
+        int json = 0;
+        for (int i = 0; i < converters.size(); i++) {
+            if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+                json = i + 1;
+            }
+        }
+        converters.add(json, new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.factory(new CBORFactory()).build()));
+    }
+
+}
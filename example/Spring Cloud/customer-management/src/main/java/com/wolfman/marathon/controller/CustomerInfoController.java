@@ -1,66 +1,106 @@
 package com.wolfman.marathon.controller;
 
 import com.wolfman.marathon.dto.CustomerInfoDTO;
+import com.wolfman.marathon.logging.RequestLog;
+import com.wolfman.marathon.service.CustomerChangePublisher;
+import com.wolfman.marathon.service.CustomerInfoService;
 import jakarta.servlet.http.HttpServletRequest;
-import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
-import java.util.Random;
+import java.util.List;
 
-@Slf4j
 @RestController
 @RequestMapping(value = "/customer")
 public class CustomerInfoController {
 
+    @Autowired
+    private CustomerInfoService customerInfoService;
+
+    @Autowired
+    private RequestLog requestLog;
+
+    @Autowired
+    private CustomerChangePublisher customerChangePublisher;
+
     @RequestMapping("/{id}")
     public CustomerInfoDTO getCustomerInfo(@PathVariable("id") String id) throws InterruptedException {
-        log.info("Getting customer info for id: {}", id);
+        requestLog.log("getCustomerInfo", "Getting customer info for id: {}", id);
 //        Thread.sleep(10000);
+        return customerInfoService.findCustomerInfo(id);
+    }
+
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeChanges(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        requestLog.log("subscribeChanges", "Subscribing customer changes, lastEventId: {}", lastEventId);
+        return customerChangePublisher.subscribe(lastEventId);
+    }
+
+    @PutMapping("/{id}")
+    public CustomerInfoDTO saveCustomerInfo(@PathVariable("id") long id, @RequestBody CustomerInfoDTO customerInfoDTO) throws IOException {
+        requestLog.log("saveCustomerInfo", "Saving customer info for id: {}", id);
+        customerInfoService.saveCustomerInfo(id, customerInfoDTO.getCustomerName(), customerInfoDTO.getPhone());
         return CustomerInfoDTO.builder()
-                .id(id)
-                .customerName("John Doe")
+                .id(String.valueOf(id))
+                .customerName(customerInfoDTO.getCustomerName())
+                .phone(customerInfoDTO.getPhone())
                 .build();
     }
 
+    @PostMapping("/batch")
+    public List<CustomerInfoDTO> getCustomerInfos(@RequestBody List<String> ids) {
+        requestLog.log("getCustomerInfos", "Getting customer info for ids: {}", ids);
+        List<CustomerInfoDTO> customerInfos = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            CustomerInfoDTO customerInfo = customerInfoService.findCustomerInfo(id);
+            if (customerInfo != null) {
+                customerInfos.add(customerInfo);
+            }
+        }
+        return customerInfos;
+    }
+
     @RequestMapping("/default-customer-name")
     public String defaultCustomerName(HttpServletRequest request, @RequestParam("name") String name){
-        for (String headerName : Collections.list(request.getHeaderNames())) {
-            log.info("defaultCustomerName headers, key:{}, value:{}", headerName, request.getHeader(headerName));
+        if (requestLog.isSampled("defaultCustomerName")) {
+            for (String headerName : Collections.list(request.getHeaderNames())) {
+                requestLog.publish("defaultCustomerName", "defaultCustomerName headers, key:{}, value:{}", headerName, request.getHeader(headerName));
+            }
+            requestLog.publish("defaultCustomerName", "Getting defaultCustomerName: {}", name);
         }
-        log.info("Getting defaultCustomerName: {}", name);
         return "张三" + name;
     }
 
     @GetMapping("/check-existed")
     public String checkExisted(@RequestParam("name") String name,
                                @RequestParam("phone") String phone){
-        log.info("checkExisted name:{}, phone:{}", name, phone);
-        int i = new Random(100).nextInt();
-        if (0 == i/0){
-            log.info("i/0");
-        }
-        return "Y";
+        requestLog.log("checkExisted", "checkExisted name:{}, phone:{}", name, phone);
+        return customerInfoService.checkExisted(name, phone) ? "Y" : "N";
     }
 
 
     @GetMapping("/check-circuitbreaker")
     public String checkCircuitBreaker(){
-        log.info("checkCircuitBreaker");
+        requestLog.log("checkCircuitBreaker", "checkCircuitBreaker");
         try {
             Thread.sleep(10000);
         } catch (InterruptedException e) {
             throw new RuntimeException(e);
         }
-//        int i = new Random(100).nextInt();
-//        if (0 == i/0){
-//            log.info("i/0");
-//        }
         return "Y";
     }
 
@@ -0,0 +1,71 @@
+package com.wolfman.marathon.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 通过 JFR 的 jdk.VirtualThreadPinned 事件监控虚拟线程钉住载体线程（synchronized 块里阻塞、native 调用等）。
+ * 每次钉住都记到 jvm.threads.virtual.pinned 计时器里，同一个调用栈只打印一次 warn 日志。
+ */
+@Slf4j
+public class VirtualThreadPinningMonitor implements Closeable {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final int LOGGED_FRAMES = 8;
+
+    private final RecordingStream stream = new RecordingStream();
+
+    private final Timer pinned;
+
+    private final Set<String> loggedStacks = ConcurrentHashMap.newKeySet();
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry, Duration threshold) {
+        this.pinned = Timer.builder("jvm.threads.virtual.pinned")
+                .description("Time virtual threads spent pinned to their carrier thread")
+                .register(meterRegistry);
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("virtual thread pinning monitor started, threshold:{}", threshold);
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.record(event.getDuration());
+        String stack = stack(event.getStackTrace());
+        if (loggedStacks.add(stack)) {
+            log.warn("virtual thread pinned for {}ms, thread:{}\n{}", event.getDuration().toMillis(),
+                    event.getThread() == null ? null : event.getThread().getJavaName(), stack);
+        }
+    }
+
+    private static String stack(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "\t<no stack trace>";
+        }
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        return frames.stream()
+                .limit(LOGGED_FRAMES)
+                .map(frame -> "\tat " + frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + "(line " + frame.getLineNumber() + ")")
+                .collect(Collectors.joining("\n"));
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.wolfman.marathon.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerChangeEvent {
+
+    private String id;
+
+    private String customerName;
+
+    /**
+     * 修改前的客户名，新增客户时为 null。
+     */
+    private String previousCustomerName;
+
+}
@@ -15,4 +15,6 @@ public class CustomerInfoDTO {
 
     private String customerName;
 
+    private String phone;
+
 }
@@ -0,0 +1,212 @@
+package com.wolfman.marathon.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.helpers.MessageFormatter;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 控制器的异步请求日志。
+ * <p>
+ * 每个接口按配置的比例采样，没采中的调用只花一次随机数。采中的事件写进预分配的环形缓冲区
+ * （多生产者单消费者，槽位复用不分配对象），缓冲区满了直接丢弃并计数，不阻塞请求线程。
+ * 一个后台线程负责格式化并交给 slf4j 输出。
+ */
+@Slf4j
+public class RequestLog implements Closeable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Slot[] slots;
+
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong();
+
+    private long tail;
+
+    private final Map<String, Double> samplingRates;
+
+    private final double defaultSamplingRate;
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public RequestLog(int bufferSize, Map<String, Double> samplingRates, double defaultSamplingRate,
+                      MeterRegistry meterRegistry) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of two: " + bufferSize);
+        }
+        this.slots = new Slot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new Slot(i);
+        }
+        this.mask = bufferSize - 1;
+        this.samplingRates = Map.copyOf(samplingRates);
+        this.defaultSamplingRate = defaultSamplingRate;
+
+        FunctionCounter.builder("customer.request.log", written, LongAdder::sum)
+                .description("Sampled request log events written")
+                .tag("result", "written")
+                .register(meterRegistry);
+        FunctionCounter.builder("customer.request.log", dropped, LongAdder::sum)
+                .description("Sampled request log events dropped because the ring buffer was full")
+                .tag("result", "dropped")
+                .register(meterRegistry);
+
+        this.writer = new Thread(this::drainLoop, "request-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 这个接口本次调用是否要记日志，拼装参数代价高（比如遍历请求头）时先调用它。
+     */
+    public boolean isSampled(String endpoint) {
+        double rate = samplingRates.getOrDefault(endpoint, defaultSamplingRate);
+        return rate >= 1 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public void log(String endpoint, String message) {
+        if (isSampled(endpoint)) {
+            publish(endpoint, message);
+        }
+    }
+
+    public void log(String endpoint, String format, Object arg) {
+        if (isSampled(endpoint)) {
+            publish(endpoint, format, arg, null);
+        }
+    }
+
+    public void log(String endpoint, String format, Object arg1, Object arg2) {
+        if (isSampled(endpoint)) {
+            publish(endpoint, format, arg1, arg2);
+        }
+    }
+
+    /**
+     * 调用方已经用 {@link #isSampled(String)} 决定过采样时使用。
+     */
+    public void publish(String endpoint, String message) {
+        publish(endpoint, message, null, null);
+    }
+
+    public void publish(String endpoint, String format, Object arg) {
+        publish(endpoint, format, arg, null);
+    }
+
+    public void publish(String endpoint, String format, Object arg1, Object arg2) {
+        long position = head.get();
+        Slot slot;
+        while (true) {
+            slot = slots[(int) position & mask];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                dropped.increment();
+                return;
+            } else {
+                position = head.get();
+            }
+        }
+        slot.endpoint = endpoint;
+        slot.format = format;
+        slot.arg1 = arg1;
+        slot.arg2 = arg2;
+        slot.thread = Thread.currentThread().getName();
+        slot.sequence = position + 1;
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+    }
+
+    private int drain() {
+        int count = 0;
+        while (true) {
+            Slot slot = slots[(int) tail & mask];
+            if (slot.sequence != tail + 1) {
+                return count;
+            }
+            String endpoint = slot.endpoint;
+            String thread = slot.thread;
+            String message = MessageFormatter.format(slot.format, slot.arg1, slot.arg2).getMessage();
+            slot.endpoint = null;
+            slot.format = null;
+            slot.arg1 = null;
+            slot.arg2 = null;
+            slot.thread = null;
+            slot.sequence = tail + slots.length;
+            tail++;
+            count++;
+            log.info("[{}] [{}] {}", thread, endpoint, message);
+            written.increment();
+        }
+    }
+
+    private static final class Slot {
+
+        /**
+         * 等于 position 时可写，等于 position + 1 时可读。
+         */
+        private volatile long sequence;
+
+        private String endpoint;
+
+        private String format;
+
+        private Object arg1;
+
+        private Object arg2;
+
+        private String thread;
+
+        Slot(long sequence) {
+            this.sequence = sequence;
+        }
+
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.wolfman.marathon.service;
+
+import com.wolfman.marathon.dto.CustomerChangeEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 通过 SSE 推送客户变更事件，订阅方据此失效自己的缓存。
+ * <p>
+ * 事件 id 是 "启动纪元-序号"，最近的事件保存在内存里。订阅方带着 Last-Event-ID 重连时补发错过的事件；
+ * 纪元不同（本服务重启过）或者错过的事件已经不在内存里时发一个 reset 事件，订阅方清空整个缓存。
+ * <p>
+ * 所有发送（事件、补发、心跳）都在同一个分发线程里按序号顺序执行：publish 只在锁里分配序号并排队，
+ * 不在写请求线程上做网络 IO；订阅方收到 N 时一定已经收到 N 之前的事件，带着 N 重连不会漏事件。
+ */
+@Slf4j
+@Component
+public class CustomerChangePublisher implements DisposableBean {
+
+    public static final String CHANGE = "change";
+
+    public static final String RESET = "reset";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    /**
+     * 只在分发线程里读写。
+     */
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    private volatile int subscriberCount;
+
+    private final ArrayDeque<Sent> recent = new ArrayDeque<>();
+
+    private final int replaySize;
+
+    private final long timeoutMillis;
+
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "customer-change-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private long sequence;
+
+    public CustomerChangePublisher(@Value("${customer.changes.replay-size:1024}") int replaySize,
+                                   @Value("${customer.changes.timeout:30m}") Duration timeout,
+                                   @Value("${customer.changes.heartbeat:15s}") Duration heartbeatInterval) {
+        this.replaySize = replaySize;
+        this.timeoutMillis = timeout.toMillis();
+        // 定期发注释行，及时发现断开的连接
+        dispatcher.scheduleAtFixedRate(this::sendHeartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public SseEmitter subscribe(String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        // 补发和登记在分发线程里一起完成，之后排队的事件按 lastSequence 去重，不会重复也不会漏
+        dispatch(() -> {
+            for (Sent sent : missedEvents(lastEventId, subscriber)) {
+                if (!send(subscriber, sent == null ? resetEvent(subscriber.lastSequence) : sent.toEvent(epoch))) {
+                    return;
+                }
+            }
+            subscribers.add(subscriber);
+            subscriberCount = subscribers.size();
+        });
+        return emitter;
+    }
+
+    public void publish(CustomerChangeEvent event) {
+        synchronized (recent) {
+            Sent sent = new Sent(++sequence, event);
+            recent.addLast(sent);
+            if (recent.size() > replaySize) {
+                recent.removeFirst();
+            }
+            // 在锁里排队，分发顺序和序号一致
+            dispatch(() -> {
+                for (Subscriber subscriber : List.copyOf(subscribers)) {
+                    if (sent.sequence > subscriber.lastSequence) {
+                        send(subscriber, sent.toEvent(epoch));
+                    }
+                }
+            });
+        }
+    }
+
+    public int getSubscribers() {
+        return subscriberCount;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        dispatcher.shutdownNow();
+        dispatcher.awaitTermination(1, TimeUnit.SECONDS);
+        // 分发线程已经停了，这里直接结束剩下的连接
+        List.copyOf(subscribers).forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * 返回需要补发的事件，null 元素表示 reset；同时把订阅方的 lastSequence 设为补发到的位置。
+     */
+    private List<Sent> missedEvents(String lastEventId, Subscriber subscriber) {
+        List<Sent> missed = new ArrayList<>();
+        int separator = lastEventId == null ? -1 : lastEventId.lastIndexOf('-');
+        long last;
+        try {
+            last = separator < 0 ? -1 : Long.parseLong(lastEventId.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            last = -1;
+        }
+        synchronized (recent) {
+            subscriber.lastSequence = sequence;
+            if (lastEventId == null || lastEventId.isEmpty()) {
+                return missed;
+            }
+            boolean sameEpoch = separator > 0 && epoch.equals(lastEventId.substring(0, separator));
+            long oldest = recent.isEmpty() ? sequence + 1 : recent.peekFirst().sequence;
+            if (!sameEpoch || last < 0 || last > sequence || last + 1 < oldest) {
+                missed.add(null);
+                return missed;
+            }
+            for (Sent sent : recent) {
+                if (sent.sequence > last) {
+                    missed.add(sent);
+                }
+            }
+        }
+        return missed;
+    }
+
+    private SseEmitter.SseEventBuilder resetEvent(long sequence) {
+        return SseEmitter.event().id(epoch + "-" + sequence).name(RESET).data("");
+    }
+
+    private void sendHeartbeat() {
+        for (Subscriber subscriber : List.copyOf(subscribers)) {
+            send(subscriber, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    private boolean send(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        try {
+            subscriber.emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("customer change subscriber gone: {}", e.toString());
+            subscribers.remove(subscriber);
+            subscriberCount = subscribers.size();
+            subscriber.emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        dispatch(() -> {
+            subscribers.remove(subscriber);
+            subscriberCount = subscribers.size();
+        });
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("customer change dispatcher stopped, dropping task");
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+
+        /**
+         * 已经发给这个订阅方的最大序号，只在分发线程里读写（登记时在 recent 锁里设置）。
+         */
+        private long lastSequence;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+    }
+
+    private record Sent(long sequence, CustomerChangeEvent event) {
+
+        SseEmitter.SseEventBuilder toEvent(String epoch) {
+            return SseEmitter.event()
+                    .id(epoch + "-" + sequence)
+                    .name(CHANGE)
+                    .data(event, MediaType.APPLICATION_JSON);
+        }
+
+    }
+
+}
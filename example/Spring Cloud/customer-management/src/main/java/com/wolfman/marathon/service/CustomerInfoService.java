@@ -0,0 +1,228 @@
+package com.wolfman.marathon.service;
+
+import com.wolfman.marathon.dto.CustomerChangeEvent;
+import com.wolfman.marathon.dto.CustomerInfoDTO;
+import com.wolfman.marathon.store.CustomerBloomFilter;
+import com.wolfman.marathon.store.MappedCustomerStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 客户信息读写。checkExisted 先查布隆过滤器，过滤器说不存在直接返回，
+ * 过滤器说可能存在再到存储的 name/phone 组合索引里比较原始字节确认，组合数据全部在堆外。
+ * <p>
+ * 写入时过滤器增量添加新的 name + phone；旧的组合无法从过滤器删除，
+ * 过期的组合超过插入数的 1/4 或插入数超过过滤器容量时在后台从存储重建，不持有写锁。
+ * 启动时过滤器同样在后台构建，构建完成前 checkExisted 直接查组合索引。
+ * 写入用 ReentrantLock 而不是 synchronized，等锁的虚拟线程不会钉住载体线程。
+ */
+@Slf4j
+@Service
+public class CustomerInfoService {
+
+    private final MappedCustomerStore mappedCustomerStore;
+
+    private final CustomerChangePublisher customerChangePublisher;
+
+    private final long expectedInsertions;
+
+    private final double falsePositiveRate;
+
+    /**
+     * 第一次构建完成前为 null。
+     */
+    private volatile CustomerBloomFilter filter;
+
+    /**
+     * 正在后台构建的过滤器，构建期间的写入同时加到这里，换上去之后不会漏掉。
+     */
+    private volatile CustomerBloomFilter building;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final AtomicLong stalePairs = new AtomicLong();
+
+    private final LongAdder negatives = new LongAdder();
+
+    private final LongAdder falsePositives = new LongAdder();
+
+    private final LongAdder positives = new LongAdder();
+
+    public CustomerInfoService(MappedCustomerStore mappedCustomerStore, CustomerChangePublisher customerChangePublisher,
+                               MeterRegistry meterRegistry,
+                               @Value("${customer.filter.expected-insertions:1000000}") long expectedInsertions,
+                               @Value("${customer.filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.mappedCustomerStore = mappedCustomerStore;
+        this.customerChangePublisher = customerChangePublisher;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        rebuild();
+
+        FunctionCounter.builder("customer.filter.checks", negatives, LongAdder::sum)
+                .description("checkExisted calls answered by the bloom filter alone")
+                .tag("result", "negative")
+                .register(meterRegistry);
+        FunctionCounter.builder("customer.filter.checks", falsePositives, LongAdder::sum)
+                .description("checkExisted calls the bloom filter passed but the customer did not exist")
+                .tag("result", "false-positive")
+                .register(meterRegistry);
+        FunctionCounter.builder("customer.filter.checks", positives, LongAdder::sum)
+                .description("checkExisted calls for existing customers")
+                .tag("result", "positive")
+                .register(meterRegistry);
+        Gauge.builder("customer.filter.fpp", this, CustomerInfoService::observedFalsePositiveRate)
+                .description("Share of absent name + phone pairs the bloom filter let through")
+                .tag("type", "observed")
+                .register(meterRegistry);
+        Gauge.builder("customer.filter.fpp", this,
+                        service -> service.filterValue(CustomerBloomFilter::expectedFalsePositiveRate))
+                .description("False positive rate estimated from the bloom filter's set bits")
+                .tag("type", "expected")
+                .register(meterRegistry);
+        Gauge.builder("customer.filter.memory", this, service -> service.filterValue(CustomerBloomFilter::getMemoryBytes))
+                .description("Size of the bloom filter's bit array")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("customer.filter.insertions", this, service -> service.filterValue(CustomerBloomFilter::getInsertions))
+                .description("Name + phone pairs added to the bloom filter since it was built")
+                .register(meterRegistry);
+    }
+
+    public CustomerInfoDTO findCustomerInfo(String id) {
+        long offset;
+        try {
+            offset = mappedCustomerStore.find(Long.parseLong(id));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (offset < 0) {
+            return null;
+        }
+        return CustomerInfoDTO.builder()
+                .id(id)
+                .customerName(mappedCustomerStore.getCustomerName(offset))
+                .phone(mappedCustomerStore.getPhone(offset))
+                .build();
+    }
+
+    public void saveCustomerInfo(long id, String customerName, String phone) throws IOException {
+        String previousCustomerName = null;
+        writeLock.lock();
+        try {
+            long offset = mappedCustomerStore.find(id);
+            if (offset >= 0) {
+                previousCustomerName = mappedCustomerStore.getCustomerName(offset);
+                stalePairs.incrementAndGet();
+            }
+            mappedCustomerStore.put(id, customerName, phone);
+            // building 的发布和替换都在写锁里，这里看到的 building / filter 和重建的遍历范围是一致的
+            CustomerBloomFilter pending = building;
+            CustomerBloomFilter current = filter;
+            if (pending != null) {
+                pending.put(customerName, phone);
+            }
+            if (current != null) {
+                current.put(customerName, phone);
+                if (stalePairs.get() > current.getInsertions() / 4
+                        || current.getInsertions() > current.getExpectedInsertions()) {
+                    rebuild();
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        // 推送在锁外进行，慢订阅方不会拖住写入
+        customerChangePublisher.publish(CustomerChangeEvent.builder()
+                .id(String.valueOf(id))
+                .customerName(customerName)
+                .previousCustomerName(previousCustomerName)
+                .build());
+    }
+
+    public boolean checkExisted(String name, String phone) {
+        CustomerBloomFilter current = filter;
+        if (current != null && !current.mightContain(name, phone)) {
+            negatives.increment();
+            return false;
+        }
+        if (mappedCustomerStore.containsPair(name, phone)) {
+            positives.increment();
+            return true;
+        }
+        if (current != null) {
+            falsePositives.increment();
+        }
+        return false;
+    }
+
+    public double observedFalsePositiveRate() {
+        long falsePositive = falsePositives.sum();
+        long absent = falsePositive + negatives.sum();
+        return absent == 0 ? 0 : (double) falsePositive / absent;
+    }
+
+    /**
+     * 在后台虚拟线程里从存储重建过滤器，容量至少是当前客户数的两倍；已经在重建时不重复发起。
+     */
+    public void rebuild() {
+        if (rebuilding.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("customer-filter-rebuild").start(() -> {
+                try {
+                    doRebuild();
+                } catch (RuntimeException e) {
+                    log.error("customer bloom filter rebuild failed", e);
+                } finally {
+                    rebuilding.set(false);
+                }
+            });
+        }
+    }
+
+    private void doRebuild() {
+        long start = System.nanoTime();
+        CustomerBloomFilter rebuilt = new CustomerBloomFilter(
+                Math.max(expectedInsertions, mappedCustomerStore.size() * 2), falsePositiveRate);
+        long stale;
+        // 在写锁里发布 building：之前完成的写入遍历时一定能看到，之后的写入一定会加到 building，
+        // 只靠 volatile 两边各写一个再读另一个，写入方可能读到旧的 null，而遍历又没看到它的新记录
+        writeLock.lock();
+        try {
+            stale = stalePairs.get();
+            building = rebuilt;
+        } finally {
+            writeLock.unlock();
+        }
+        // 遍历不持有写锁，期间的写入同时加到 building
+        mappedCustomerStore.forEachPairHash(rebuilt::putHash);
+        writeLock.lock();
+        try {
+            filter = rebuilt;
+            building = null;
+            stalePairs.addAndGet(-stale);
+        } finally {
+            writeLock.unlock();
+        }
+        log.info("customer bloom filter rebuilt, insertions:{}, bits:{}, hashFunctions:{}, took:{}ms",
+                rebuilt.getInsertions(), rebuilt.getBitSize(), rebuilt.getHashFunctions(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private double filterValue(ToDoubleFunction<CustomerBloomFilter> value) {
+        CustomerBloomFilter current = filter;
+        return current == null ? 0 : value.applyAsDouble(current);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.wolfman.marathon.store;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 客户 name + phone 的布隆过滤器，mightContain 返回 false 时一定不存在。
+ * <p>
+ * 位数组按期望元素数和误判率计算大小，k 个位置用两个 64 位哈希做双重哈希得到。
+ * 只能添加不能删除，修改或删除过的客户会留下旧的位，由调用方按需重建。
+ */
+public class CustomerBloomFilter {
+
+    private final AtomicLongArray bits;
+
+    private final long bitSize;
+
+    private final int hashFunctions;
+
+    private final long expectedInsertions;
+
+    private final LongAdder insertions = new LongAdder();
+
+    public CustomerBloomFilter(long expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("expectedInsertions must be > 0 and falsePositiveRate in (0, 1)");
+        }
+        long bitSize = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = Math.toIntExact((bitSize + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = (long) words << 6;
+        this.hashFunctions = Math.max(1, (int) Math.round((double) this.bitSize / expectedInsertions * Math.log(2)));
+        this.expectedInsertions = expectedInsertions;
+    }
+
+    public void put(String name, String phone) {
+        putHash(PairHash.of(name, phone));
+    }
+
+    /**
+     * 按 {@link PairHash} 添加，重建时直接从存储的记录字节计算哈希。
+     */
+    public void putHash(long h) {
+        long h1 = fmix(h);
+        long h2 = fmix(h ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0 && !bits.weakCompareAndSetVolatile(word, current, current | mask)) {
+                current = bits.get(word);
+            }
+        }
+        insertions.increment();
+    }
+
+    public boolean mightContain(String name, String phone) {
+        long h = PairHash.of(name, phone);
+        long h1 = fmix(h);
+        long h2 = fmix(h ^ 0x9e3779b97f4a7c15L) | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitSize);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按当前置位比例估算的误判率 (bitsSet / m) ^ k。
+     */
+    public double expectedFalsePositiveRate() {
+        long set = 0;
+        for (int i = 0; i < bits.length(); i++) {
+            set += Long.bitCount(bits.get(i));
+        }
+        return Math.pow((double) set / bitSize, hashFunctions);
+    }
+
+    public long getInsertions() {
+        return insertions.sum();
+    }
+
+    public long getExpectedInsertions() {
+        return expectedInsertions;
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    public long getMemoryBytes() {
+        return bitSize >>> 3;
+    }
+
+    private static long fmix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
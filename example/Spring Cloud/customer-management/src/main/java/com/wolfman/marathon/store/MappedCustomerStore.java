@@ -0,0 +1,478 @@
+package com.wolfman.marathon.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * 基于内存映射文件的客户存储，数据和索引都在堆外，重启时直接映射文件，不需要解析。
+ * <p>
+ * customers.dat: 追加写的记录 [long id][int nameLength][int phoneLength][name utf-8][phone utf-8]，按 256MB 分段映射，记录不跨段。
+ * customers.idx: 文件头 + long id -> long 记录偏移 的开放寻址哈希表，线性探测，容量固定为 2 的幂。
+ * customers.pairs: 文件头 + name/phone 组合索引，槽位为 [long id][long tag]，tag 是 {@link PairHash} 把最低位置 1，
+ * 0 表示空槽，{@link #PAIR_TOMBSTONE} 表示客户改了 name/phone 之后留下的墓碑。命中后回到记录比较原始字节，哈希冲突不会误判。
+ * <p>
+ * 单写多读：写操作加锁，读操作无锁，槽位的 offset / tag 用 release/acquire 发布，offset 为 0 表示空槽。
+ */
+public class MappedCustomerStore implements Closeable {
+
+    private static final int MAGIC = 0x43555354;
+
+    private static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int CHUNK_SHIFT = 28;
+
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+
+    private static final int RECORD_HEADER_SIZE = 16;
+
+    /**
+     * 数据文件前 8 个字节保留，这样有效记录的 offset 永远不为 0。
+     */
+    private static final long FIRST_RECORD = 8;
+
+    private static final int MAX_CAPACITY = 1 << 26;
+
+    public static final int MAX_NAME_LENGTH = 1024;
+
+    public static final int MAX_PHONE_LENGTH = 64;
+
+    private static final int PAIR_MAGIC = 0x43555350;
+
+    private static final int PAIR_VERSION = 1;
+
+    private static final long PAIR_TOMBSTONE = 2;
+
+    private static final String PAIRS_FILE = "customers.pairs";
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+
+    private final FileChannel indexChannel;
+
+    private final FileChannel dataChannel;
+
+    private final MappedByteBuffer index;
+
+    private final int capacity;
+
+    private volatile MappedByteBuffer[] chunks;
+
+    private FileChannel pairChannel;
+
+    private volatile MappedByteBuffer pairs;
+
+    /**
+     * 组合索引里非空槽位数（有效 + 墓碑），超过容量的 7/8 时重建去掉墓碑。
+     */
+    private long pairsUsed;
+
+    private long dataEnd;
+
+    private long count;
+
+    public MappedCustomerStore(Path directory, int capacity) throws IOException {
+        if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be a power of two <= " + MAX_CAPACITY + ": " + capacity);
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.indexChannel = FileChannel.open(directory.resolve("customers.idx"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.dataChannel = FileChannel.open(directory.resolve("customers.dat"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean created = indexChannel.size() == 0;
+        this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        this.index.order(ByteOrder.LITTLE_ENDIAN);
+        if (created) {
+            index.putInt(0, MAGIC);
+            index.putInt(4, VERSION);
+            index.putInt(8, capacity);
+            dataEnd = FIRST_RECORD;
+            writeHeader();
+        } else {
+            if (index.getInt(0) != MAGIC || index.getInt(4) != VERSION || index.getInt(8) != capacity) {
+                throw new IllegalStateException("customer index at " + directory + " has a different format or capacity");
+            }
+            dataEnd = index.getLong(16);
+            count = index.getLong(24);
+        }
+        this.capacity = capacity;
+        this.chunks = new MappedByteBuffer[0];
+        ensureMapped(dataEnd);
+        openPairs();
+    }
+
+    /**
+     * 返回 id 对应记录的 offset，不存在返回 -1。
+     */
+    public long find(long id) {
+        int mask = capacity - 1;
+        for (int slot = hash(id) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long offset = (long) LONGS.getAcquire(index, position + 8);
+            if (offset == 0) {
+                return -1;
+            }
+            if (index.getLong(position) == id) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    public String getCustomerName(long offset) {
+        MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int position = (int) (offset & (CHUNK_SIZE - 1));
+        byte[] name = new byte[chunk.getInt(position + 8)];
+        chunk.get(position + RECORD_HEADER_SIZE, name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 返回记录里的手机号，没有手机号返回 null。
+     */
+    public String getPhone(long offset) {
+        MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int position = (int) (offset & (CHUNK_SIZE - 1));
+        int phoneLength = chunk.getInt(position + 12);
+        if (phoneLength == 0) {
+            return null;
+        }
+        byte[] phone = new byte[phoneLength];
+        chunk.get(position + RECORD_HEADER_SIZE + chunk.getInt(position + 8), phone);
+        return new String(phone, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按 id 查客户名，不存在返回 null。
+     */
+    public String findCustomerName(long id) {
+        long offset = find(id);
+        return offset < 0 ? null : getCustomerName(offset);
+    }
+
+    /**
+     * 是否有客户的 name 和 phone 与参数完全相同，只读映射文件，不创建字符串。
+     */
+    public boolean containsPair(String customerName, String phone) {
+        byte[] name = PairHash.bytes(customerName);
+        byte[] phoneBytes = PairHash.bytes(phone);
+        long pairHash = PairHash.of(name, phoneBytes);
+        long tag = pairHash | 1;
+        MappedByteBuffer table = pairs;
+        int mask = capacity - 1;
+        for (int slot = hash(pairHash) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long current = (long) LONGS.getAcquire(table, position + 8);
+            if (current == 0) {
+                return false;
+            }
+            if (current == tag) {
+                long offset = find(table.getLong(position));
+                if (offset >= 0 && recordEquals(offset, name, phoneBytes)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按 {@link PairHash} 遍历所有客户的 name/phone 组合，直接对记录字节求哈希，用于无锁重建过滤器。
+     */
+    public void forEachPairHash(LongConsumer consumer) {
+        forEach((id, offset) -> consumer.accept(pairHash(offset)));
+    }
+
+    public synchronized void put(long id, String customerName, String phone) throws IOException {
+        byte[] name = customerName.getBytes(StandardCharsets.UTF_8);
+        if (name.length > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("customerName longer than " + MAX_NAME_LENGTH + " bytes");
+        }
+        byte[] phoneBytes = phone == null ? new byte[0] : phone.getBytes(StandardCharsets.UTF_8);
+        if (phoneBytes.length > MAX_PHONE_LENGTH) {
+            throw new IllegalArgumentException("phone longer than " + MAX_PHONE_LENGTH + " bytes");
+        }
+        int slot = findSlot(id);
+        int position = HEADER_SIZE + slot * SLOT_SIZE;
+        long previous = (long) LONGS.getAcquire(index, position + 8);
+        boolean added = previous == 0;
+        if (added && count + 1 > capacity * 3L / 4) {
+            throw new IllegalStateException("customer store is full, capacity " + capacity);
+        }
+
+        long offset = dataEnd;
+        int length = RECORD_HEADER_SIZE + name.length + phoneBytes.length;
+        if ((offset & (CHUNK_SIZE - 1)) + length > CHUNK_SIZE) {
+            offset = (offset >>> CHUNK_SHIFT) + 1 << CHUNK_SHIFT;
+        }
+        ensureMapped(offset + length);
+        MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int chunkPosition = (int) (offset & (CHUNK_SIZE - 1));
+        chunk.putLong(chunkPosition, id);
+        chunk.putInt(chunkPosition + 8, name.length);
+        chunk.putInt(chunkPosition + 12, phoneBytes.length);
+        chunk.put(chunkPosition + RECORD_HEADER_SIZE, name);
+        chunk.put(chunkPosition + RECORD_HEADER_SIZE + name.length, phoneBytes);
+
+        if (added) {
+            index.putLong(position, id);
+            count++;
+        }
+        LONGS.setRelease(index, position + 8, offset);
+        dataEnd = offset + length;
+
+        // 先插入新组合再给旧组合打墓碑，并发读不会在两者之间漏掉这个客户
+        long pairHash = PairHash.of(name, phoneBytes);
+        long previousPairHash = added ? 0 : pairHash(previous);
+        if (added || previousPairHash != pairHash) {
+            pairsUsed += insertPair(pairs, pairHash, id);
+            if (!added) {
+                removePair(pairs, previousPairHash, id);
+            }
+            if (pairsUsed > capacity * 7L / 8) {
+                rebuildPairs();
+            }
+        }
+        pairs.putLong(16, pairsUsed);
+        pairs.putLong(24, dataEnd);
+        writeHeader();
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 遍历所有客户，用于重建派生结构（例如过滤器）。
+     */
+    public void forEach(CustomerVisitor visitor) {
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long offset = (long) LONGS.getAcquire(index, position + 8);
+            if (offset != 0) {
+                visitor.visit(index.getLong(position), offset);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        pairs.force();
+        for (MappedByteBuffer chunk : chunks) {
+            chunk.force();
+        }
+        indexChannel.close();
+        dataChannel.close();
+        pairChannel.close();
+    }
+
+    /**
+     * 组合索引的文件头里记录了最后一次更新时的 dataEnd，和 customers.idx 对不上（新建、旧版本升级、写到一半退出）就从记录重建。
+     */
+    private void openPairs() throws IOException {
+        Path file = directory.resolve(PAIRS_FILE);
+        if (Files.exists(file) && Files.size(file) == HEADER_SIZE + (long) capacity * SLOT_SIZE) {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer table = mapPairs(channel);
+            if (table.getInt(0) == PAIR_MAGIC && table.getInt(4) == PAIR_VERSION && table.getInt(8) == capacity
+                    && table.getLong(24) == dataEnd) {
+                pairChannel = channel;
+                pairs = table;
+                pairsUsed = table.getLong(16);
+                return;
+            }
+            channel.close();
+        }
+        rebuildPairs();
+    }
+
+    /**
+     * 在临时文件里从 customers.idx 重新生成组合索引，再原子替换，重建期间读操作继续用旧的映射。
+     */
+    private void rebuildPairs() throws IOException {
+        Path file = directory.resolve(PAIRS_FILE);
+        Path tmp = directory.resolve(PAIRS_FILE + ".tmp");
+        Files.deleteIfExists(tmp);
+        FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer table = mapPairs(channel);
+        table.putInt(0, PAIR_MAGIC);
+        table.putInt(4, PAIR_VERSION);
+        table.putInt(8, capacity);
+        long used = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long offset = index.getLong(position + 8);
+            if (offset != 0) {
+                used += insertPair(table, pairHash(offset), index.getLong(position));
+            }
+        }
+        table.putLong(16, used);
+        table.putLong(24, dataEnd);
+        table.force();
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        FileChannel previous = pairChannel;
+        pairChannel = channel;
+        pairs = table;
+        pairsUsed = used;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    private MappedByteBuffer mapPairs(FileChannel channel) throws IOException {
+        MappedByteBuffer table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) capacity * SLOT_SIZE);
+        table.order(ByteOrder.LITTLE_ENDIAN);
+        return table;
+    }
+
+    /**
+     * 插入 id 的组合，优先复用探测路径上的第一个墓碑，返回占用的空槽数（0 或 1）。
+     */
+    private long insertPair(MappedByteBuffer table, long pairHash, long id) {
+        long tag = pairHash | 1;
+        int mask = capacity - 1;
+        int tombstone = -1;
+        for (int slot = hash(pairHash) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long current = (long) LONGS.getAcquire(table, position + 8);
+            if (current == 0) {
+                int target = tombstone >= 0 ? tombstone : position;
+                table.putLong(target, id);
+                LONGS.setRelease(table, target + 8, tag);
+                return tombstone >= 0 ? 0 : 1;
+            }
+            if (current == PAIR_TOMBSTONE) {
+                if (tombstone < 0) {
+                    tombstone = position;
+                }
+            } else if (current == tag && table.getLong(position) == id) {
+                return 0;
+            }
+        }
+        if (tombstone < 0) {
+            throw new IllegalStateException("customer pair index is full, capacity " + capacity);
+        }
+        table.putLong(tombstone, id);
+        LONGS.setRelease(table, tombstone + 8, tag);
+        return 0;
+    }
+
+    private void removePair(MappedByteBuffer table, long pairHash, long id) {
+        long tag = pairHash | 1;
+        int mask = capacity - 1;
+        for (int slot = hash(pairHash) & mask, probes = 0; probes < capacity; slot = (slot + 1) & mask, probes++) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long current = (long) LONGS.getAcquire(table, position + 8);
+            if (current == 0) {
+                return;
+            }
+            if (current == tag && table.getLong(position) == id) {
+                LONGS.setRelease(table, position + 8, PAIR_TOMBSTONE);
+                return;
+            }
+        }
+    }
+
+    private long pairHash(long offset) {
+        MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int position = (int) (offset & (CHUNK_SIZE - 1));
+        int nameLength = chunk.getInt(position + 8);
+        int namePosition = position + RECORD_HEADER_SIZE;
+        return PairHash.of(chunk, namePosition, nameLength, namePosition + nameLength, chunk.getInt(position + 12));
+    }
+
+    private boolean recordEquals(long offset, byte[] name, byte[] phone) {
+        MappedByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int position = (int) (offset & (CHUNK_SIZE - 1));
+        if (chunk.getInt(position + 8) != name.length || chunk.getInt(position + 12) != phone.length) {
+            return false;
+        }
+        int namePosition = position + RECORD_HEADER_SIZE;
+        for (int i = 0; i < name.length; i++) {
+            if (chunk.get(namePosition + i) != name[i]) {
+                return false;
+            }
+        }
+        int phonePosition = namePosition + name.length;
+        for (int i = 0; i < phone.length; i++) {
+            if (chunk.get(phonePosition + i) != phone[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int findSlot(long id) {
+        int mask = capacity - 1;
+        int slot = hash(id) & mask;
+        while (true) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            if ((long) LONGS.getAcquire(index, position + 8) == 0 || index.getLong(position) == id) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void writeHeader() {
+        index.putLong(16, dataEnd);
+        index.putLong(24, count);
+    }
+
+    private void ensureMapped(long end) throws IOException {
+        int needed = (int) ((end + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+        MappedByteBuffer[] current = chunks;
+        if (needed <= current.length) {
+            return;
+        }
+        MappedByteBuffer[] grown = Arrays.copyOf(current, needed);
+        for (int i = current.length; i < needed; i++) {
+            grown[i] = dataChannel.map(FileChannel.MapMode.READ_WRITE, (long) i << CHUNK_SHIFT, CHUNK_SIZE);
+            grown[i].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        chunks = grown;
+    }
+
+    private static int hash(long id) {
+        long h = id;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    @FunctionalInterface
+    public interface CustomerVisitor {
+
+        void visit(long id, long offset);
+
+    }
+
+}
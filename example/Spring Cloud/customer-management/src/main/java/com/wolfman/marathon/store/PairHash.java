@@ -0,0 +1,51 @@
+package com.wolfman.marathon.store;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 客户 name + phone 组合的 64 位哈希 (FNV-1a，name 和 phone 之间加一个 0xff 分隔)。
+ * 布隆过滤器和存储里的组合索引共用，既可以从字符串算，也可以直接从映射文件里的记录字节算，重建时不用解码字符串。
+ */
+public final class PairHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private PairHash() {
+    }
+
+    public static long of(String name, String phone) {
+        return of(bytes(name), bytes(phone));
+    }
+
+    public static long of(byte[] name, byte[] phone) {
+        long h = OFFSET_BASIS;
+        for (byte b : name) {
+            h = (h ^ (b & 0xff)) * PRIME;
+        }
+        h = (h ^ 0xff) * PRIME;
+        for (byte b : phone) {
+            h = (h ^ (b & 0xff)) * PRIME;
+        }
+        return h;
+    }
+
+    static long of(ByteBuffer buffer, int namePosition, int nameLength, int phonePosition, int phoneLength) {
+        long h = OFFSET_BASIS;
+        for (int i = 0; i < nameLength; i++) {
+            h = (h ^ (buffer.get(namePosition + i) & 0xff)) * PRIME;
+        }
+        h = (h ^ 0xff) * PRIME;
+        for (int i = 0; i < phoneLength; i++) {
+            h = (h ^ (buffer.get(phonePosition + i) & 0xff)) * PRIME;
+        }
+        return h;
+    }
+
+    static byte[] bytes(String value) {
+        return value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
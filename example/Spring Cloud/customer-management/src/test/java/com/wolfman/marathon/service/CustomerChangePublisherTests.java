@@ -0,0 +1,146 @@
+package com.wolfman.marathon.service;
+
+import com.wolfman.marathon.dto.CustomerChangeEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class CustomerChangePublisherTests {
+
+    private final CustomerChangePublisher publisher = new CustomerChangePublisher(4, Duration.ofMinutes(1), Duration.ofHours(1));
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ChangesController(publisher)).build();
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        publisher.destroy();
+    }
+
+    @Test
+    void sendsConcurrentlyPublishedEventsInSequenceOrder() throws Exception {
+        MockHttpServletResponse response = subscribe(null);
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 100; i++) {
+            int id = i;
+            writers.execute(() -> publisher.publish(change(id)));
+        }
+        writers.shutdown();
+        assertThat(writers.awaitTermination(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(awaitEvents(response, 100)).extracting(Event::sequence)
+                .containsExactlyElementsOf(LongStream.rangeClosed(1, 100).boxed().toList());
+    }
+
+    @Test
+    void replaysMissedEventsOnReconnect() throws Exception {
+        MockHttpServletResponse first = subscribe(null);
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(change(i));
+        }
+        List<Event> received = awaitEvents(first, 3);
+
+        MockHttpServletResponse reconnected = subscribe(received.get(0).id());
+        publisher.publish(change(3));
+
+        assertThat(awaitEvents(reconnected, 3)).extracting(Event::sequence).containsExactly(2L, 3L, 4L);
+        assertThat(awaitEvents(reconnected, 3)).extracting(Event::name).containsOnly(CustomerChangePublisher.CHANGE);
+    }
+
+    @Test
+    void resetsWhenMissedEventsAreNoLongerKept() throws Exception {
+        MockHttpServletResponse first = subscribe(null);
+        for (int i = 0; i < 6; i++) {
+            publisher.publish(change(i));
+        }
+        String oldest = awaitEvents(first, 6).get(0).id();
+
+        assertThat(awaitEvents(subscribe(oldest), 1)).extracting(Event::name)
+                .containsExactly(CustomerChangePublisher.RESET);
+        assertThat(awaitEvents(subscribe("restarted-1"), 1)).extracting(Event::name)
+                .containsExactly(CustomerChangePublisher.RESET);
+    }
+
+    private MockHttpServletResponse subscribe(String lastEventId) throws Exception {
+        return mockMvc.perform(lastEventId == null ? get("/changes") : get("/changes").header("Last-Event-ID", lastEventId))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+    }
+
+    private static List<Event> awaitEvents(MockHttpServletResponse response, int expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        List<Event> events = parse(response.getContentAsString());
+        while (events.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            events = parse(response.getContentAsString());
+        }
+        assertThat(events).hasSize(expected);
+        return events;
+    }
+
+    private static List<Event> parse(String body) {
+        List<Event> events = new ArrayList<>();
+        for (String block : body.split("\n\n")) {
+            String id = null;
+            String name = null;
+            for (String line : block.split("\n")) {
+                if (line.startsWith("id:")) {
+                    id = line.substring(3);
+                } else if (line.startsWith("event:")) {
+                    name = line.substring(6);
+                }
+            }
+            if (id != null && name != null) {
+                events.add(new Event(id, name));
+            }
+        }
+        return events;
+    }
+
+    private static CustomerChangeEvent change(int id) {
+        return CustomerChangeEvent.builder().id(String.valueOf(id)).customerName("customer-" + id).build();
+    }
+
+    private record Event(String id, String name) {
+
+        long sequence() {
+            return Long.parseLong(id.substring(id.lastIndexOf('-') + 1));
+        }
+
+    }
+
+    @RestController
+    static class ChangesController {
+
+        private final CustomerChangePublisher publisher;
+
+        ChangesController(CustomerChangePublisher publisher) {
+            this.publisher = publisher;
+        }
+
+        @GetMapping("/changes")
+        SseEmitter changes(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+            return publisher.subscribe(lastEventId);
+        }
+
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.wolfman.gateway.benchmark;
+
+import com.wolfman.gateway.route.WolfmanRoutePredicateFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Synthetic tenant route tables shared by the gateway benchmarks.
+ */
+final class GatewayRoutes {
+
+    static final String TENANT_HEADER = "X-Tenant";
+
+    static final URI CUSTOMER_MANAGEMENT = URI.create("http://127.0.0.1:9090");
+
+    private GatewayRoutes() {
+    }
+
+    static String tenant(int i) {
+        return "tenant-" + i;
+    }
+
+    static List<WolfmanRoutePredicateFactory.Config> configs(int size) {
+        List<WolfmanRoutePredicateFactory.Config> configs = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            configs.add(new WolfmanRoutePredicateFactory.Config().setHeaderKey(TENANT_HEADER).setHeaderValue(tenant(i)));
+        }
+        return configs;
+    }
+
+    static List<RouteDefinition> definitions(int size) {
+        List<RouteDefinition> definitions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            RouteDefinition definition = new RouteDefinition();
+            definition.setId("wolfman_" + i);
+            definition.setUri(CUSTOMER_MANAGEMENT);
+            definition.getPredicates().add(new PredicateDefinition("Wolfman=" + TENANT_HEADER + "," + tenant(i)));
+            definitions.add(definition);
+        }
+        return definitions;
+    }
+
+    static List<Route> routes(WolfmanRoutePredicateFactory factory, int size) {
+        List<WolfmanRoutePredicateFactory.Config> configs = configs(size);
+        List<Route> routes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            routes.add(Route.async()
+                    .id("wolfman_" + i)
+                    .uri(CUSTOMER_MANAGEMENT)
+                    .asyncPredicate(factory.applyAsync(configs.get(i)))
+                    .build());
+        }
+        return routes;
+    }
+
+    static MockServerWebExchange exchange(String tenant) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/customer/1").header(TENANT_HEADER, tenant));
+    }
+
+}
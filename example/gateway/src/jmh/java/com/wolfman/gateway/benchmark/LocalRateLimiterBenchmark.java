@@ -0,0 +1,64 @@
+package com.wolfman.gateway.benchmark;
+
+import com.wolfman.gateway.filter.LocalRateLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.cloud.gateway.filter.ratelimit.RateLimiter;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on {@link LocalRateLimiter} with every core hammering either one hot key
+ * or a large key space.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(Threads.MAX)
+public class LocalRateLimiterBenchmark {
+
+    private static final String ROUTE_ID = "add_request_headers_route_2";
+
+    @Param({"1000000"})
+    private int keys;
+
+    private LocalRateLimiter rateLimiter;
+
+    private String[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rateLimiter = new LocalRateLimiter(1_000_000, 2_000_000, Duration.ofMinutes(5), null);
+        ids = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            ids[i] = "client-" + i;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        rateLimiter.destroy();
+    }
+
+    @Benchmark
+    public RateLimiter.Response hotKey() {
+        return rateLimiter.tryAcquire(ROUTE_ID, ids[0]);
+    }
+
+    @Benchmark
+    public RateLimiter.Response distinctKeys() {
+        return rateLimiter.tryAcquire(ROUTE_ID, ids[ThreadLocalRandom.current().nextInt(keys)]);
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.wolfman.gateway.benchmark;
+
+import com.wolfman.gateway.route.WolfmanRouteIndex;
+import com.wolfman.gateway.route.WolfmanRoutePredicateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cloud.gateway.route.CachingRouteLocator;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full route resolution through a {@link RouteLocator}, the same way
+ * {@code RoutePredicateHandlerMapping.lookupRoute} does it, against the indexed lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RouteLookupBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int routes;
+
+    private RouteLocator routeLocator;
+
+    private WolfmanRouteIndex index;
+
+    private ServerWebExchange lastRouteExchange;
+
+    private ServerWebExchange missExchange;
+
+    @Setup
+    public void setUp() {
+        WolfmanRoutePredicateFactory factory = new WolfmanRoutePredicateFactory();
+        List<Route> routeList = GatewayRoutes.routes(factory, routes);
+        routeLocator = new CachingRouteLocator(() -> Flux.fromIterable(routeList));
+        index = WolfmanRouteIndex.compile(factory.name(), GatewayRoutes.definitions(routes), routeList);
+        lastRouteExchange = GatewayRoutes.exchange(GatewayRoutes.tenant(routes - 1));
+        missExchange = GatewayRoutes.exchange("unknown");
+    }
+
+    @Benchmark
+    public Route routeLocatorLastRoute() {
+        return lookup(lastRouteExchange);
+    }
+
+    @Benchmark
+    public Route routeLocatorMiss() {
+        return lookup(missExchange);
+    }
+
+    @Benchmark
+    public WolfmanRouteIndex.IndexedRoute indexLastRoute() {
+        return index.lookup(lastRouteExchange.getRequest().getHeaders());
+    }
+
+    @Benchmark
+    public WolfmanRouteIndex.IndexedRoute indexMiss() {
+        return index.lookup(missExchange.getRequest().getHeaders());
+    }
+
+    private Route lookup(ServerWebExchange exchange) {
+        return routeLocator.getRoutes()
+                .concatMap(route -> Mono.from(route.getPredicate().apply(exchange))
+                        .filter(Boolean::booleanValue)
+                        .map(matched -> route))
+                .next()
+                .block();
+    }
+
+}
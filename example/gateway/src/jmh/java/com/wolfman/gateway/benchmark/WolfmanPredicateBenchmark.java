@@ -0,0 +1,72 @@
+package com.wolfman.gateway.benchmark;
+
+import com.wolfman.gateway.route.WolfmanRoutePredicateFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of {@code WolfmanRoutePredicateFactory.apply(...).test(exchange)}, for a single predicate
+ * and for a first-match scan over the whole route table as the gateway does it today.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WolfmanPredicateBenchmark {
+
+    @Param({"10", "1000", "50000"})
+    private int routes;
+
+    private Predicate<ServerWebExchange> single;
+
+    private List<Predicate<ServerWebExchange>> predicates;
+
+    private ServerWebExchange lastRouteExchange;
+
+    private ServerWebExchange missExchange;
+
+    @Setup
+    public void setUp() {
+        WolfmanRoutePredicateFactory factory = new WolfmanRoutePredicateFactory();
+        predicates = GatewayRoutes.configs(routes).stream().map(factory::apply).collect(Collectors.toList());
+        single = predicates.get(routes - 1);
+        lastRouteExchange = GatewayRoutes.exchange(GatewayRoutes.tenant(routes - 1));
+        missExchange = GatewayRoutes.exchange("unknown");
+    }
+
+    @Benchmark
+    public boolean singlePredicate() {
+        return single.test(lastRouteExchange);
+    }
+
+    @Benchmark
+    public int scanToLastRoute() {
+        return scan(lastRouteExchange);
+    }
+
+    @Benchmark
+    public int scanMiss() {
+        return scan(missExchange);
+    }
+
+    private int scan(ServerWebExchange exchange) {
+        for (int i = 0; i < predicates.size(); i++) {
+            if (predicates.get(i).test(exchange)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
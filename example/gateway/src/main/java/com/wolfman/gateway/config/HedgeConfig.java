@@ -0,0 +1,26 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.filter.HedgeGatewayFilterFactory;
+import com.wolfman.gateway.metrics.RouteLatencyRecorder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+@Configuration
+public class HedgeConfig {
+
+    @Bean
+    public HedgeGatewayFilterFactory hedgeGatewayFilterFactory(HttpClient httpClient,
+                                                               LoadBalancerClientFactory loadBalancerClientFactory,
+                                                               RouteLatencyRecorder routeLatencyRecorder,
+                                                               ObjectProvider<List<HttpHeadersFilter>> headersFilters) {
+        return new HedgeGatewayFilterFactory(httpClient, loadBalancerClientFactory,
+                routeLatencyRecorder, headersFilters);
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.route.IncrementalRouteLocator;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.cloud.gateway.route.CachingRouteLocator;
+import org.springframework.cloud.gateway.route.CompositeRouteLocator;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConditionalOnProperty(name = "wolfman.route.incremental-refresh.enabled", havingValue = "true")
+public class IncrementalRouteConfig {
+
+    /**
+     * Takes the place of the gateway's cachedCompositeRouteLocator, with the full-rebuild
+     * {@link RouteDefinitionRouteLocator} swapped for an {@link IncrementalRouteLocator}.
+     */
+    @Bean(name = "cachedCompositeRouteLocator")
+    @Primary
+    public RouteLocator cachedCompositeRouteLocator(List<RouteLocator> routeLocators,
+                                                    RouteDefinitionLocator routeDefinitionLocator,
+                                                    List<RoutePredicateFactory> predicates,
+                                                    List<GatewayFilterFactory> gatewayFilterFactories,
+                                                    GatewayProperties gatewayProperties,
+                                                    ConfigurationService configurationService,
+                                                    MeterRegistry meterRegistry) {
+        List<RouteLocator> delegates = new ArrayList<>();
+        for (RouteLocator routeLocator : routeLocators) {
+            if (!(routeLocator instanceof RouteDefinitionRouteLocator)) {
+                delegates.add(routeLocator);
+            }
+        }
+        delegates.add(new IncrementalRouteLocator(routeDefinitionLocator, predicates, gatewayFilterFactories,
+                gatewayProperties, configurationService, meterRegistry));
+        return new CachingRouteLocator(new CompositeRouteLocator(Flux.fromIterable(delegates)));
+    }
+
+}
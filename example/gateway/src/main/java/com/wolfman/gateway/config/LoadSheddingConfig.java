@@ -0,0 +1,30 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.filter.LoadSheddingGatewayFilterFactory;
+import com.wolfman.gateway.filter.OverloadDetector;
+import com.wolfman.gateway.route.WolfmanRoutePredicateFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class LoadSheddingConfig {
+
+    @Bean
+    public OverloadDetector overloadDetector(@Value("${wolfman.load-shedding.max-concurrency:512}") int maxConcurrency,
+                                             @Value("${wolfman.load-shedding.target-queue-delay:100ms}") Duration targetQueueDelay,
+                                             @Value("${wolfman.load-shedding.interval:1s}") Duration interval) {
+        return new OverloadDetector(maxConcurrency, targetQueueDelay, interval);
+    }
+
+    @Bean
+    public LoadSheddingGatewayFilterFactory loadSheddingGatewayFilterFactory(OverloadDetector overloadDetector,
+                                                                             WolfmanRoutePredicateFactory wolfmanRoutePredicateFactory,
+                                                                             MeterRegistry meterRegistry) {
+        return new LoadSheddingGatewayFilterFactory(overloadDetector, wolfmanRoutePredicateFactory, meterRegistry);
+    }
+
+}
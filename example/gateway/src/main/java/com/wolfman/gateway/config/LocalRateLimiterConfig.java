@@ -0,0 +1,33 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.filter.LocalRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+@Configuration
+public class LocalRateLimiterConfig {
+
+    @Bean
+    public LocalRateLimiter localRateLimiter(@Value("${wolfman.rate-limiter.replenish-rate:100}") int replenishRate,
+                                             @Value("${wolfman.rate-limiter.burst-capacity:200}") int burstCapacity,
+                                             @Value("${wolfman.rate-limiter.idle-timeout:5m}") Duration idleTimeout,
+                                             ConfigurationService configurationService) {
+        return new LocalRateLimiter(replenishRate, burstCapacity, idleTimeout, configurationService);
+    }
+
+    /**
+     * Rate limits by client address, used by {@code RequestRateLimiter} unless a route sets its own key-resolver.
+     */
+    @Bean
+    public KeyResolver remoteAddrKeyResolver() {
+        return exchange -> Mono.justOrEmpty(exchange.getRequest().getRemoteAddress())
+                .map(address -> address.getAddress().getHostAddress());
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.loadbalancer.InstanceLatencyStats;
+import com.wolfman.gateway.loadbalancer.PeakEwmaLoadBalancerConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+@ConditionalOnProperty(name = "wolfman.loadbalancer.peak-ewma.enabled", havingValue = "true")
+@LoadBalancerClients(defaultConfiguration = PeakEwmaLoadBalancerConfiguration.class)
+public class PeakEwmaLoadBalancerConfig {
+
+    @Bean
+    public InstanceLatencyStats instanceLatencyStats(@Value("${wolfman.loadbalancer.peak-ewma.decay:10s}") Duration decay,
+                                                     @Value("${wolfman.loadbalancer.peak-ewma.failure-latency:1s}") Duration failureLatency) {
+        return new InstanceLatencyStats(decay.toNanos(), failureLatency.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.filter.RequestCoalescingGatewayFilterFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+public class RequestCoalescingConfig {
+
+    @Bean
+    public RequestCoalescingGatewayFilterFactory requestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry,
+                                                                                       @Value("${wolfman.coalescing.max-body-size:256KB}") DataSize maxBodySize) {
+        return new RequestCoalescingGatewayFilterFactory(meterRegistry, maxBodySize.toBytes());
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.filter.ResponseCacheGatewayFilterFactory;
+import com.wolfman.gateway.filter.ResponseCacheStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Configuration
+public class ResponseCacheConfig {
+
+    @Bean
+    public ResponseCacheStore responseCacheStore(@Value("${wolfman.response-cache.max-size:64MB}") DataSize maxSize,
+                                                 @Value("${wolfman.response-cache.max-entry-size:256KB}") DataSize maxEntrySize,
+                                                 MeterRegistry meterRegistry) {
+        return new ResponseCacheStore(maxSize.toBytes(), (int) maxEntrySize.toBytes(), meterRegistry);
+    }
+
+    @Bean
+    public ResponseCacheGatewayFilterFactory responseCacheGatewayFilterFactory(ResponseCacheStore responseCacheStore) {
+        return new ResponseCacheGatewayFilterFactory(responseCacheStore);
+    }
+
+}
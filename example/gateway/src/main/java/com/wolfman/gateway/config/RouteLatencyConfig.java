@@ -0,0 +1,40 @@
+package com.wolfman.gateway.config;
+
+import com.wolfman.gateway.metrics.RouteLatencyEndpoint;
+import com.wolfman.gateway.metrics.RouteLatencyFilter;
+import com.wolfman.gateway.metrics.RouteLatencyRecorder;
+import com.wolfman.gateway.metrics.UpstreamLatencyFilter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class RouteLatencyConfig {
+
+    @Bean
+    public RouteLatencyRecorder routeLatencyRecorder(@Value("${wolfman.route-latency.window:60s}") Duration window,
+                                                     ObjectProvider<RouteLocator> routeLocator) {
+        // filter factories depend on the recorder, so the route locator is looked up lazily
+        return new RouteLatencyRecorder(window, routeLocator);
+    }
+
+    @Bean
+    public RouteLatencyFilter routeLatencyFilter(RouteLatencyRecorder routeLatencyRecorder) {
+        return new RouteLatencyFilter(routeLatencyRecorder);
+    }
+
+    @Bean
+    public UpstreamLatencyFilter upstreamLatencyFilter(RouteLatencyRecorder routeLatencyRecorder) {
+        return new UpstreamLatencyFilter(routeLatencyRecorder);
+    }
+
+    @Bean
+    public RouteLatencyEndpoint routeLatencyEndpoint(RouteLatencyRecorder routeLatencyRecorder) {
+        return new RouteLatencyEndpoint(routeLatencyRecorder);
+    }
+
+}
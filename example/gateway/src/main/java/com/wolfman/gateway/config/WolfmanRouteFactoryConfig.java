@@ -1,8 +1,15 @@
 package com.wolfman.gateway.config;
 
 import com.wolfman.gateway.route.WolfmanRoutePredicateFactory;
+import com.wolfman.gateway.route.WolfmanRoutePredicateHandlerMapping;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 @Configuration
 public class WolfmanRouteFactoryConfig {
@@ -12,4 +19,19 @@ public class WolfmanRouteFactoryConfig {
         return new WolfmanRoutePredicateFactory();
     }
 
+    /**
+     * Replaces the gateway's default handler mapping so that Wolfman routes resolve with a hash lookup.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "wolfman.route.index.enabled", havingValue = "true")
+    public WolfmanRoutePredicateHandlerMapping wolfmanRoutePredicateHandlerMapping(FilteringWebHandler webHandler,
+                                                                                   RouteLocator routeLocator,
+                                                                                   RouteDefinitionLocator routeDefinitionLocator,
+                                                                                   WolfmanRoutePredicateFactory wolfmanRoutePredicateFactory,
+                                                                                   GlobalCorsProperties globalCorsProperties,
+                                                                                   Environment environment) {
+        return new WolfmanRoutePredicateHandlerMapping(webHandler, routeLocator, routeDefinitionLocator,
+                wolfmanRoutePredicateFactory, globalCorsProperties, environment);
+    }
+
 }
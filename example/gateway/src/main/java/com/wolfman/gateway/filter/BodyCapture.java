@@ -0,0 +1,75 @@
+package com.wolfman.gateway.filter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies the buffers of a response body as they are written, up to a size limit, so the
+ * body can be kept without holding it back from the client. Past the limit the copy is
+ * dropped and the rest of the body just streams through.
+ */
+final class BodyCapture {
+
+    private final long limit;
+
+    private List<byte[]> chunks = new ArrayList<>();
+
+    private long size;
+
+    BodyCapture(long limit) {
+        this.limit = limit;
+    }
+
+    void append(DataBuffer buffer) {
+        if (chunks == null) {
+            return;
+        }
+        int length = buffer.readableByteCount();
+        if (size + length > limit) {
+            chunks = null;
+            return;
+        }
+        byte[] chunk = new byte[length];
+        buffer.toByteBuffer(buffer.readPosition(), ByteBuffer.wrap(chunk), 0, length);
+        chunks.add(chunk);
+        size += length;
+    }
+
+    /**
+     * Returns the captured body, or {@code null} if it went over the limit.
+     */
+    byte[] toByteArray() {
+        if (chunks == null) {
+            return null;
+        }
+        byte[] bytes = new byte[(int) size];
+        int position = 0;
+        for (byte[] chunk : chunks) {
+            System.arraycopy(chunk, 0, bytes, position, chunk.length);
+            position += chunk.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the captured body in an unpooled direct buffer owned by the caller, or
+     * {@code null} if it went over the limit. Unpooled, so the memory is freed as soon as the
+     * buffer is released and a stale reference fails instead of touching a recycled buffer.
+     */
+    ByteBuf toDirectByteBuf() {
+        if (chunks == null) {
+            return null;
+        }
+        ByteBuf copy = Unpooled.directBuffer((int) size);
+        for (byte[] chunk : chunks) {
+            copy.writeBytes(chunk);
+        }
+        return copy;
+    }
+
+}
@@ -0,0 +1,395 @@
+package com.wolfman.gateway.filter;
+
+import com.wolfman.gateway.metrics.RouteLatencyRecorder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycleValidator;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerProperties;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.ReactiveLoadBalancerClientFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseCookie;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientResponse;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.RouteMetadataUtils.RESPONSE_TIMEOUT_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_CONN_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.CLIENT_RESPONSE_HEADER_NAMES;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.PRESERVE_HOST_HEADER_ATTRIBUTE;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.isAlreadyRouted;
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.setAlreadyRouted;
+
+/**
+ * Hedged requests for idempotent routes.
+ * <p>
+ * Usage: {@code Hedge=95, 50ms, 0.05}. The request is sent to the instance picked by the load
+ * balancer; if no response has arrived after the route's upstream p95 of the last window
+ * (or 50ms before there is one), a second request is sent to a different instance of an
+ * {@code lb://} route, or to the same URL otherwise. Whichever answers first is written, the
+ * other is dropped. Hedges are paid from a budget that earns 0.05 of a hedge per request.
+ * <p>
+ * Both attempts go through the gateway's Netty {@link HttpClient}, and the winner is handed to
+ * {@code NettyWriteResponseFilter} exactly like {@link NettyRoutingFilter} does, so the body
+ * streams and nothing is buffered. The losing attempt is cancelled as soon as the winner's
+ * headers arrive, which releases its upstream connection; a client disconnect cancels both.
+ * Only the primary attempt is recorded as upstream latency, and when it is cancelled its elapsed
+ * time is recorded instead: a lower bound, but it keeps the hedge delay from being derived from
+ * hedged latencies only and shrinking.
+ */
+public class HedgeGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgeGatewayFilterFactory.Config> {
+
+    /**
+     * Percentile key.
+     */
+    public static final String PERCENTILE = "percentile";
+
+    /**
+     * Minimum delay key.
+     */
+    public static final String MIN_DELAY = "minDelay";
+
+    /**
+     * Max extra load key.
+     */
+    public static final String MAX_EXTRA_LOAD = "maxExtraLoad";
+
+    private static final int ATTEMPTS_FOR_OTHER_INSTANCE = 3;
+
+    private final HttpClient httpClient;
+
+    private final LoadBalancerClientFactory loadBalancerFactory;
+
+    private final RouteLatencyRecorder routeLatencyRecorder;
+
+    private final ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider;
+
+    private volatile List<HttpHeadersFilter> headersFilters;
+
+    public HedgeGatewayFilterFactory(HttpClient httpClient, LoadBalancerClientFactory loadBalancerFactory,
+                                     RouteLatencyRecorder routeLatencyRecorder,
+                                     ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider) {
+        super(Config.class);
+        this.httpClient = httpClient;
+        this.loadBalancerFactory = loadBalancerFactory;
+        this.routeLatencyRecorder = routeLatencyRecorder;
+        this.headersFiltersProvider = headersFiltersProvider;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList(PERCENTILE, MIN_DELAY, MAX_EXTRA_LOAD);
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        HedgeBudget budget = new HedgeBudget(config.getMaxExtraLoad());
+        // runs once the load balancer has resolved the primary instance, and routes the request itself
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            URI primaryUrl = exchange.getAttribute(GATEWAY_REQUEST_URL_ATTR);
+            if ((method != HttpMethod.GET && method != HttpMethod.HEAD) || primaryUrl == null || isAlreadyRouted(exchange)
+                    || (!"http".equals(primaryUrl.getScheme()) && !"https".equals(primaryUrl.getScheme()))) {
+                return chain.filter(exchange);
+            }
+            budget.onRequest();
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            Duration delay = hedgeDelay(route, config);
+            AtomicBoolean decided = new AtomicBoolean();
+
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            Mono<Attempt> primary = send(exchange, route, primaryUrl, decided, true).doOnError(primaryError::set);
+            Mono<Attempt> hedge = Mono.delay(delay)
+                    .filter(tick -> !decided.get() && budget.tryAcquire())
+                    .flatMap(tick -> hedge(exchange, route, primaryUrl, decided));
+
+            setAlreadyRouted(exchange);
+            return Mono.firstWithValue(primary, hedge)
+                    // neither attempt produced a response: surface the primary's error
+                    .onErrorMap(e -> primaryError.get() != null ? primaryError.get() : e)
+                    .doOnNext(winner -> writeHeaders(exchange, winner))
+                    .then();
+        }, ReactiveLoadBalancerClientFilter.LOAD_BALANCER_CLIENT_FILTER_ORDER + 1);
+    }
+
+    private Duration hedgeDelay(Route route, Config config) {
+        long micros = route == null ? -1 : routeLatencyRecorder.upstreamPercentileMicros(route.getId(), config.getPercentile());
+        Duration observed = Duration.ofNanos(micros * 1000);
+        return micros < 0 || observed.compareTo(config.getMinDelay()) < 0 ? config.getMinDelay() : observed;
+    }
+
+    /**
+     * Sends the hedge to another instance of an {@code lb://} route, reporting it to the load
+     * balancer lifecycle the same way {@link ReactiveLoadBalancerClientFilter} does for the primary.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private Mono<Attempt> hedge(ServerWebExchange exchange, Route route, URI primaryUrl, AtomicBoolean decided) {
+        Response<ServiceInstance> primary = exchange.getAttribute(GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (route == null || primary == null || !primary.hasServer()) {
+            return send(exchange, route, primaryUrl, decided, false);
+        }
+        String serviceId = route.getUri().getHost();
+        ReactiveLoadBalancer<ServiceInstance> loadBalancer = loadBalancerFactory.getInstance(serviceId);
+        if (loadBalancer == null) {
+            return send(exchange, route, primaryUrl, decided, false);
+        }
+        Set<LoadBalancerLifecycle> lifecycles = LoadBalancerLifecycleValidator.getSupportedLifecycleProcessors(
+                loadBalancerFactory.getInstances(serviceId, LoadBalancerLifecycle.class),
+                RequestDataContext.class, ResponseData.class, ServiceInstance.class);
+        RequestData requestData = new RequestData(exchange.getRequest());
+        DefaultRequest<RequestDataContext> lbRequest = new DefaultRequest<>(new RequestDataContext(requestData, hint(serviceId)));
+        lifecycles.forEach(lifecycle -> lifecycle.onStart(lbRequest));
+
+        ServiceInstance primaryInstance = primary.getServer();
+        return Mono.defer(() -> Mono.from(loadBalancer.choose(lbRequest)))
+                .repeat(ATTEMPTS_FOR_OTHER_INSTANCE - 1)
+                .filter(response -> response.hasServer() && !sameInstance(response.getServer(), primaryInstance))
+                .next()
+                .flatMap(lbResponse -> {
+                    lifecycles.forEach(lifecycle -> lifecycle.onStartRequest(lbRequest, lbResponse));
+                    ServiceInstance instance = lbResponse.getServer();
+                    URI url = UriComponentsBuilder.fromUri(primaryUrl)
+                            .scheme(instance.isSecure() ? "https" : "http")
+                            .host(instance.getHost())
+                            .port(instance.getPort())
+                            .build(true)
+                            .toUri();
+                    return send(exchange, route, url, decided, false)
+                            .doOnNext(attempt -> lifecycles.forEach(lifecycle -> lifecycle.onComplete(new CompletionContext(
+                                    CompletionContext.Status.SUCCESS, null, lbRequest, lbResponse,
+                                    responseData(attempt.response(), requestData)))))
+                            .doOnError(e -> lifecycles.forEach(lifecycle -> lifecycle.onComplete(new CompletionContext(
+                                    CompletionContext.Status.FAILED, e, lbRequest, lbResponse))))
+                            .doOnCancel(() -> lifecycles.forEach(lifecycle -> lifecycle.onComplete(new CompletionContext(
+                                    CompletionContext.Status.DISCARD, lbRequest, lbResponse))));
+                });
+    }
+
+    /**
+     * Sends one attempt. The attempt whose headers arrive first claims {@code decided} and is
+     * emitted; a later one closes its connection and completes empty.
+     */
+    private Mono<Attempt> send(ServerWebExchange exchange, Route route, URI url, AtomicBoolean decided, boolean primary) {
+        HttpHeaders requestHeaders = HttpHeadersFilter.filterRequest(getHeadersFilters(), exchange);
+        boolean preserveHost = exchange.getAttributeOrDefault(PRESERVE_HOST_HEADER_ATTRIBUTE, false);
+        String host = exchange.getRequest().getHeaders().getFirst(HttpHeaders.HOST);
+        io.netty.handler.codec.http.HttpMethod method =
+                io.netty.handler.codec.http.HttpMethod.valueOf(exchange.getRequest().getMethod().name());
+        Duration responseTimeout = responseTimeout(route);
+
+        Mono<Attempt> attempt = Mono.defer(() -> {
+            long start = System.nanoTime();
+            AtomicBoolean recorded = new AtomicBoolean(!primary || route == null);
+            return httpClient.headers(headers -> {
+                        requestHeaders.forEach(headers::set);
+                        headers.remove(HttpHeaders.HOST);
+                        if (preserveHost && host != null) {
+                            headers.add(HttpHeaders.HOST, host);
+                        }
+                    })
+                    .request(method)
+                    .uri(url.toASCIIString())
+                    .responseConnection((response, connection) -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            routeLatencyRecorder.recordUpstream(route.getId(), System.nanoTime() - start);
+                        }
+                        if (!decided.compareAndSet(false, true)) {
+                            connection.dispose();
+                            return Mono.<Attempt>empty();
+                        }
+                        return Mono.just(new Attempt(response, connection));
+                    })
+                    .next()
+                    // the primary lost the race or the client went away: its latency is at least this long
+                    .doOnCancel(() -> {
+                        if (recorded.compareAndSet(false, true)) {
+                            routeLatencyRecorder.recordUpstream(route.getId(), System.nanoTime() - start);
+                        }
+                    });
+        });
+        if (responseTimeout != null) {
+            attempt = attempt.timeout(responseTimeout,
+                    Mono.error(() -> new TimeoutException("Response took longer than timeout: " + responseTimeout)));
+        }
+        return attempt.onErrorMap(TimeoutException.class,
+                e -> new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, e.getMessage(), e));
+    }
+
+    /**
+     * Hands the winning response to {@code NettyWriteResponseFilter}, which streams its body.
+     */
+    private void writeHeaders(ServerWebExchange exchange, Attempt winner) {
+        HttpClientResponse clientResponse = winner.response();
+        exchange.getAttributes().put(CLIENT_RESPONSE_ATTR, clientResponse);
+        exchange.getAttributes().put(CLIENT_RESPONSE_CONN_ATTR, winner.connection());
+
+        ServerHttpResponse response = exchange.getResponse();
+        HttpHeaders headers = new HttpHeaders();
+        clientResponse.responseHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
+        String contentType = headers.getFirst(HttpHeaders.CONTENT_TYPE);
+        if (StringUtils.hasLength(contentType)) {
+            exchange.getAttributes().put(ORIGINAL_RESPONSE_CONTENT_TYPE_ATTR, contentType);
+        }
+        response.setStatusCode(HttpStatusCode.valueOf(clientResponse.status().code()));
+        HttpHeaders filtered = HttpHeadersFilter.filter(getHeadersFilters(), headers, exchange, HttpHeadersFilter.Type.RESPONSE);
+        if (!filtered.containsKey(HttpHeaders.TRANSFER_ENCODING) && filtered.containsKey(HttpHeaders.CONTENT_LENGTH)) {
+            response.getHeaders().remove(HttpHeaders.TRANSFER_ENCODING);
+        }
+        exchange.getAttributes().put(CLIENT_RESPONSE_HEADER_NAMES, filtered.keySet());
+        response.getHeaders().addAll(filtered);
+    }
+
+    private Duration responseTimeout(Route route) {
+        Object timeout = route == null ? null : route.getMetadata().get(RESPONSE_TIMEOUT_ATTR);
+        if (timeout instanceof Number millis && millis.longValue() >= 0) {
+            return Duration.ofMillis(millis.longValue());
+        }
+        if (timeout != null && StringUtils.hasText(timeout.toString())) {
+            long millis = Long.parseLong(timeout.toString());
+            return millis < 0 ? null : Duration.ofMillis(millis);
+        }
+        return null;
+    }
+
+    private String hint(String serviceId) {
+        LoadBalancerProperties properties = loadBalancerFactory.getProperties(serviceId);
+        Map<String, String> hints = properties.getHint();
+        String hint = hints.get(serviceId);
+        return hint != null ? hint : hints.getOrDefault("default", "default");
+    }
+
+    private static ResponseData responseData(HttpClientResponse response, RequestData requestData) {
+        HttpHeaders headers = new HttpHeaders();
+        response.responseHeaders().forEach(entry -> headers.add(entry.getKey(), entry.getValue()));
+        return new ResponseData(HttpStatusCode.valueOf(response.status().code()), headers,
+                new LinkedMultiValueMap<String, ResponseCookie>(), requestData);
+    }
+
+    private List<HttpHeadersFilter> getHeadersFilters() {
+        if (headersFilters == null) {
+            headersFilters = headersFiltersProvider.getIfAvailable(Collections::emptyList);
+        }
+        return headersFilters;
+    }
+
+    private static boolean sameInstance(ServiceInstance a, ServiceInstance b) {
+        return a.getHost().equals(b.getHost()) && a.getPort() == b.getPort();
+    }
+
+    private record Attempt(HttpClientResponse response, Connection connection) {
+    }
+
+    /**
+     * Every request deposits {@code ratio} of a hedge, every hedge withdraws one. Kept in
+     * thousandths of a hedge so it fits a single {@link AtomicLong}, capped at a small burst.
+     */
+    static final class HedgeBudget {
+
+        private static final long ONE_HEDGE = 1000;
+
+        private static final long MAX_BALANCE = 10 * ONE_HEDGE;
+
+        private final long deposit;
+
+        private final AtomicLong balance = new AtomicLong();
+
+        HedgeBudget(double ratio) {
+            this.deposit = Math.round(ratio * ONE_HEDGE);
+        }
+
+        void onRequest() {
+            balance.getAndUpdate(current -> Math.min(current + deposit, MAX_BALANCE));
+        }
+
+        boolean tryAcquire() {
+            long current;
+            do {
+                current = balance.get();
+                if (current < ONE_HEDGE) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - ONE_HEDGE));
+            return true;
+        }
+
+    }
+
+    public static class Config {
+
+        private double percentile = 95;
+
+        private Duration minDelay = Duration.ofMillis(50);
+
+        private double maxExtraLoad = 0.05;
+
+        public double getPercentile() {
+            return percentile;
+        }
+
+        public Config setPercentile(double percentile) {
+            this.percentile = percentile;
+            return this;
+        }
+
+        public Duration getMinDelay() {
+            return minDelay;
+        }
+
+        public Config setMinDelay(Duration minDelay) {
+            this.minDelay = minDelay;
+            return this;
+        }
+
+        public double getMaxExtraLoad() {
+            return maxExtraLoad;
+        }
+
+        public Config setMaxExtraLoad(double maxExtraLoad) {
+            this.maxExtraLoad = maxExtraLoad;
+            return this;
+        }
+
+    }
+
+}
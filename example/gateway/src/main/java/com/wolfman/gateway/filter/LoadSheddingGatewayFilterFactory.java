@@ -0,0 +1,81 @@
+package com.wolfman.gateway.filter;
+
+import com.wolfman.gateway.route.WolfmanRoutePredicateFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Rejects low priority requests with 503 while the gateway is overloaded.
+ * <p>
+ * Usage: {@code LoadShedding=X-Priority, high}. Priority is matched with the same header model as
+ * {@code Wolfman=}: requests carrying {@code X-Priority: high} always pass, every other request on
+ * the route is shed as soon as {@link OverloadDetector#isOverloaded(String)} says so for the route,
+ * before it reaches the upstream.
+ */
+public class LoadSheddingGatewayFilterFactory extends AbstractGatewayFilterFactory<WolfmanRoutePredicateFactory.Config> {
+
+    private final OverloadDetector overloadDetector;
+
+    private final WolfmanRoutePredicateFactory wolfmanRoutePredicateFactory;
+
+    private final LongAdder shed = new LongAdder();
+
+    public LoadSheddingGatewayFilterFactory(OverloadDetector overloadDetector,
+                                            WolfmanRoutePredicateFactory wolfmanRoutePredicateFactory,
+                                            MeterRegistry meterRegistry) {
+        super(WolfmanRoutePredicateFactory.Config.class);
+        this.overloadDetector = overloadDetector;
+        this.wolfmanRoutePredicateFactory = wolfmanRoutePredicateFactory;
+        FunctionCounter.builder("gateway.requests.shed", shed, LongAdder::sum)
+                .description("Low priority requests rejected while the gateway was overloaded")
+                .register(meterRegistry);
+        Gauge.builder("gateway.requests.in-flight", overloadDetector, OverloadDetector::getInFlight)
+                .register(meterRegistry);
+        Gauge.builder("gateway.requests.queue-delay", overloadDetector, detector -> detector.getQueueDelayNanos() / 1e6)
+                .description("Highest queueing delay among the routes")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList(WolfmanRoutePredicateFactory.HEADER_KEY, WolfmanRoutePredicateFactory.HEADER_VALUE);
+    }
+
+    @Override
+    public GatewayFilter apply(WolfmanRoutePredicateFactory.Config config) {
+        Predicate<ServerWebExchange> highPriority = wolfmanRoutePredicateFactory.apply(config);
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+            String routeId = route == null ? "" : route.getId();
+            if (!highPriority.test(exchange) && overloadDetector.isOverloaded(routeId)) {
+                shed.increment();
+                ServerHttpResponse response = exchange.getResponse();
+                response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+                return response.setComplete();
+            }
+            overloadDetector.onStart();
+            long start = System.nanoTime();
+            return chain.filter(exchange).doFinally(signal -> overloadDetector.onComplete(routeId, System.nanoTime() - start));
+        }, Ordered.HIGHEST_PRECEDENCE + 1);
+    }
+
+}
@@ -0,0 +1,202 @@
+package com.wolfman.gateway.filter;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * In-memory token bucket {@link org.springframework.cloud.gateway.filter.ratelimit.RateLimiter}, a
+ * drop-in replacement for {@code RedisRateLimiter} that needs no Redis.
+ * <p>
+ * Each bucket is a single {@code long}: the theoretical arrival time of the next request (GCRA),
+ * which is exactly a token bucket of {@code burstCapacity} refilled at {@code replenishRate} per
+ * second. Buckets are updated with a CAS and never locked. A bucket that has been full for longer
+ * than the idle timeout is indistinguishable from a new one, so it is dropped by a periodic sweep.
+ */
+public class LocalRateLimiter extends AbstractRateLimiter<LocalRateLimiter.Config> implements DisposableBean {
+
+    /**
+     * Local rate limiter configuration property name.
+     */
+    public static final String CONFIGURATION_PROPERTY_NAME = "local-rate-limiter";
+
+    /**
+     * Remaining Rate Limit header name.
+     */
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    /**
+     * Replenish Rate Limit header name.
+     */
+    public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+
+    /**
+     * Burst Capacity header name.
+     */
+    public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+
+    /**
+     * Requested Tokens header name.
+     */
+    public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    private final Config defaultConfig;
+
+    private final long idleTimeoutNanos;
+
+    private final Disposable sweeper;
+
+    public LocalRateLimiter(int defaultReplenishRate, int defaultBurstCapacity, Duration idleTimeout,
+                            ConfigurationService configurationService) {
+        super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+        if (defaultReplenishRate < 1 || defaultReplenishRate > NANOS_PER_SECOND) {
+            throw new IllegalArgumentException("replenishRate must be between 1 and " + NANOS_PER_SECOND + ": "
+                    + defaultReplenishRate);
+        }
+        this.defaultConfig = new Config().setReplenishRate(defaultReplenishRate).setBurstCapacity(defaultBurstCapacity);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        // the sweep walks every bucket, keep it off the parallel scheduler that serves requests
+        this.sweeper = Schedulers.boundedElastic().schedulePeriodically(this::evictIdle,
+                idleTimeout.toMillis(), idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Mono<Response> isAllowed(String routeId, String id) {
+        return Mono.just(tryAcquire(routeId, id));
+    }
+
+    public Response tryAcquire(String routeId, String id) {
+        Config config = getConfig().getOrDefault(routeId, defaultConfig);
+        // above 1e9 tokens per second the emission interval would round down to zero
+        long interval = Math.max(1, NANOS_PER_SECOND / config.getReplenishRate());
+        long increment = interval * config.getRequestedTokens();
+        long capacity = interval * config.getBurstCapacity();
+
+        long now = System.nanoTime();
+        Bucket bucket = buckets.computeIfAbsent(routeId + '\n' + id, key -> new Bucket(now));
+        long remaining;
+        boolean allowed;
+        while (true) {
+            long tat = bucket.tat;
+            long base = tat - now > 0 ? tat : now;
+            long next = base + increment;
+            allowed = next - now <= capacity;
+            if (!allowed) {
+                remaining = (capacity - (base - now)) / interval;
+                break;
+            }
+            if (Bucket.TAT.compareAndSet(bucket, tat, next)) {
+                remaining = (capacity - (next - now)) / interval;
+                break;
+            }
+        }
+        return new Response(allowed, headers(config, Math.max(remaining, 0)));
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    /**
+     * Drops buckets that have been full for longer than the idle timeout.
+     */
+    public void evictIdle() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> now - bucket.tat > idleTimeoutNanos);
+    }
+
+    @Override
+    public void destroy() {
+        sweeper.dispose();
+    }
+
+    private Map<String, String> headers(Config config, long remaining) {
+        Map<String, String> headers = new HashMap<>(8);
+        headers.put(REMAINING_HEADER, Long.toString(remaining));
+        headers.put(REPLENISH_RATE_HEADER, Integer.toString(config.getReplenishRate()));
+        headers.put(BURST_CAPACITY_HEADER, Integer.toString(config.getBurstCapacity()));
+        headers.put(REQUESTED_TOKENS_HEADER, Integer.toString(config.getRequestedTokens()));
+        return headers;
+    }
+
+    private static final class Bucket {
+
+        private static final AtomicLongFieldUpdater<Bucket> TAT = AtomicLongFieldUpdater.newUpdater(Bucket.class, "tat");
+
+        /**
+         * Theoretical arrival time, in {@link System#nanoTime()} units. Any value not after now means full.
+         */
+        private volatile long tat;
+
+        Bucket(long now) {
+            this.tat = now;
+        }
+
+    }
+
+    @Validated
+    public static class Config {
+
+        @Min(1)
+        @Max(1_000_000_000)
+        private int replenishRate;
+
+        @Min(0)
+        private int burstCapacity = 1;
+
+        @Min(1)
+        private int requestedTokens = 1;
+
+        public int getReplenishRate() {
+            return replenishRate;
+        }
+
+        public Config setReplenishRate(int replenishRate) {
+            this.replenishRate = replenishRate;
+            return this;
+        }
+
+        public int getBurstCapacity() {
+            return burstCapacity;
+        }
+
+        public Config setBurstCapacity(int burstCapacity) {
+            this.burstCapacity = burstCapacity;
+            return this;
+        }
+
+        public int getRequestedTokens() {
+            return requestedTokens;
+        }
+
+        public Config setRequestedTokens(int requestedTokens) {
+            this.requestedTokens = requestedTokens;
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Config{replenishRate=" + replenishRate + ", burstCapacity=" + burstCapacity
+                    + ", requestedTokens=" + requestedTokens + '}';
+        }
+
+    }
+
+}
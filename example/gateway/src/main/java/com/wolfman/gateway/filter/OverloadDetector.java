@@ -0,0 +1,139 @@
+package com.wolfman.gateway.filter;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Overload signal: requests in flight across the gateway and queueing delay per route.
+ * <p>
+ * Queueing delay is estimated CoDel style for each route on its own: the minimum latency of the
+ * last interval minus the minimum latency seen over the last {@link #BASELINE_INTERVALS}
+ * intervals. When even the fastest request of an interval was slower than usual by more than the
+ * target, requests of that route are queueing somewhere rather than being served. Comparing a
+ * route only with itself keeps a shift in the mix of routes from looking like queueing.
+ * <p>
+ * Intervals are also rotated when the signal is read, and an interval without samples clears the
+ * delay: a route whose traffic is all being shed lets requests through again after one interval
+ * and measures anew, instead of staying shed on a stale sample.
+ */
+public class OverloadDetector {
+
+    private static final int BASELINE_INTERVALS = 30;
+
+    private final int maxConcurrency;
+
+    private final long targetQueueDelayNanos;
+
+    private final long intervalNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final ConcurrentHashMap<String, RouteDelay> routes = new ConcurrentHashMap<>();
+
+    public OverloadDetector(int maxConcurrency, Duration targetQueueDelay, Duration interval) {
+        this.maxConcurrency = maxConcurrency;
+        this.targetQueueDelayNanos = targetQueueDelay.toNanos();
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * Whether low priority requests of the route should be rejected right now.
+     */
+    public boolean isOverloaded(String routeId) {
+        if (inFlight.get() >= maxConcurrency) {
+            return true;
+        }
+        RouteDelay route = routes.get(routeId);
+        return route != null && route.queueDelayNanos(System.nanoTime()) > targetQueueDelayNanos;
+    }
+
+    public void onStart() {
+        inFlight.incrementAndGet();
+    }
+
+    public void onComplete(String routeId, long latencyNanos) {
+        inFlight.decrementAndGet();
+        route(routeId).record(latencyNanos, System.nanoTime());
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Highest queueing delay among the routes.
+     */
+    public long getQueueDelayNanos() {
+        long now = System.nanoTime();
+        long max = 0;
+        for (RouteDelay route : routes.values()) {
+            max = Math.max(max, route.queueDelayNanos(now));
+        }
+        return max;
+    }
+
+    private RouteDelay route(String routeId) {
+        RouteDelay route = routes.get(routeId);
+        return route != null ? route : routes.computeIfAbsent(routeId, id -> new RouteDelay(intervalNanos));
+    }
+
+    private static final class RouteDelay {
+
+        private final long intervalNanos;
+
+        private final AtomicLong intervalMin = new AtomicLong(Long.MAX_VALUE);
+
+        private final AtomicLong intervalEnd;
+
+        private final long[] baseline = new long[BASELINE_INTERVALS];
+
+        private int baselineIndex;
+
+        private volatile long queueDelayNanos;
+
+        RouteDelay(long intervalNanos) {
+            this.intervalNanos = intervalNanos;
+            this.intervalEnd = new AtomicLong(System.nanoTime() + intervalNanos);
+            Arrays.fill(baseline, Long.MAX_VALUE);
+        }
+
+        void record(long latencyNanos, long now) {
+            long min;
+            do {
+                min = intervalMin.get();
+            } while (latencyNanos < min && !intervalMin.compareAndSet(min, latencyNanos));
+            rotateIfDue(now);
+        }
+
+        long queueDelayNanos(long now) {
+            rotateIfDue(now);
+            return queueDelayNanos;
+        }
+
+        private void rotateIfDue(long now) {
+            long end = intervalEnd.get();
+            if (now - end >= 0 && intervalEnd.compareAndSet(end, now + intervalNanos)) {
+                rotate(intervalMin.getAndSet(Long.MAX_VALUE));
+            }
+        }
+
+        private synchronized void rotate(long lastIntervalMin) {
+            if (lastIntervalMin == Long.MAX_VALUE) {
+                queueDelayNanos = 0;
+                return;
+            }
+            baseline[baselineIndex] = lastIntervalMin;
+            baselineIndex = (baselineIndex + 1) % BASELINE_INTERVALS;
+            long floor = Long.MAX_VALUE;
+            for (long value : baseline) {
+                floor = Math.min(floor, value);
+            }
+            queueDelayNanos = lastIntervalMin - floor;
+        }
+
+    }
+
+}
@@ -0,0 +1,228 @@
+package com.wolfman.gateway.filter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Merges concurrent identical GET requests of a route into one upstream exchange.
+ * <p>
+ * Usage: {@code Coalesce=X-Tenant}. The first request for a key is sent upstream, every request
+ * for the same key that arrives while it is in flight waits on a {@link Sinks.One} and gets a copy
+ * of the same response. Nothing blocks: followers are plain subscribers of the leader's response.
+ * The leader's body streams to its own client and is copied for the followers up to a size limit.
+ * If the leader fails, writes no body, goes over the limit or answers with {@code Set-Cookie} or
+ * {@code Cache-Control: private}, followers are routed upstream themselves.
+ */
+public class RequestCoalescingGatewayFilterFactory extends AbstractGatewayFilterFactory<RequestCoalescingGatewayFilterFactory.Config> {
+
+    /**
+     * Key headers key.
+     */
+    public static final String HEADERS = "headers";
+
+    private final ConcurrentHashMap<String, Sinks.One<CoalescedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder leaders = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final LongAdder fallThrough = new LongAdder();
+
+    private final long maxBodySize;
+
+    public RequestCoalescingGatewayFilterFactory(MeterRegistry meterRegistry, long maxBodySize) {
+        super(Config.class);
+        this.maxBodySize = maxBodySize;
+        FunctionCounter.builder("gateway.requests.coalescing", leaders, LongAdder::sum)
+                .description("GET requests sent upstream by the coalescing filter")
+                .tag("type", "leader")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.requests.coalescing", coalesced, LongAdder::sum)
+                .description("GET requests served from another in-flight upstream exchange")
+                .tag("type", "coalesced")
+                .register(meterRegistry);
+        FunctionCounter.builder("gateway.requests.coalescing", fallThrough, LongAdder::sum)
+                .description("GET requests that waited for a leader whose response could not be shared and went upstream")
+                .tag("type", "fall-through")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String name() {
+        return "Coalesce";
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Collections.singletonList(HEADERS);
+    }
+
+    @Override
+    public ShortcutType shortcutType() {
+        return ShortcutType.GATHER_LIST;
+    }
+
+    public long getLeaders() {
+        return leaders.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public long getFallThrough() {
+        return fallThrough.sum();
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+            String key = RequestKeys.of(exchange, config.getHeaders());
+            Sinks.One<CoalescedResponse> sink = Sinks.one();
+            Sinks.One<CoalescedResponse> leader = inFlight.putIfAbsent(key, sink);
+            if (leader != null) {
+                // counted once the outcome is known: only a written copy is a coalesced request
+                return leader.asMono()
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(response -> {
+                            if (response.isPresent()) {
+                                coalesced.increment();
+                                return write(exchange.getResponse(), response.get());
+                            }
+                            fallThrough.increment();
+                            return chain.filter(exchange);
+                        });
+            }
+            leaders.increment();
+            LeaderResponse response = new LeaderResponse(exchange.getResponse(), key, sink);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> {
+                        inFlight.remove(key, sink);
+                        sink.tryEmitEmpty();
+                    });
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    private static Mono<Void> write(ServerHttpResponse response, CoalescedResponse coalescedResponse) {
+        response.setStatusCode(coalescedResponse.status);
+        response.getHeaders().putAll(coalescedResponse.headers);
+        response.getHeaders().setContentLength(coalescedResponse.body.length);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(coalescedResponse.body)));
+    }
+
+    /**
+     * A response that sets cookies or is marked private belongs to the client that asked for it
+     * and is never handed to followers.
+     */
+    private static boolean isShareable(HttpHeaders headers) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return false;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return true;
+        }
+        String directives = cacheControl.toLowerCase(Locale.ROOT);
+        return !directives.contains("private") && !directives.contains("no-store");
+    }
+
+    private class LeaderResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final Sinks.One<CoalescedResponse> sink;
+
+        LeaderResponse(ServerHttpResponse delegate, String key, Sinks.One<CoalescedResponse> sink) {
+            super(delegate);
+            this.key = key;
+            this.sink = sink;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            // late arrivals start a new exchange rather than joining a finished one
+            inFlight.remove(key, sink);
+            if (!isShareable(getHeaders())) {
+                sink.tryEmitEmpty();
+                return super.writeWith(body);
+            }
+            HttpStatusCode status = getStatusCode();
+            BodyCapture capture = new BodyCapture(maxBodySize);
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> {
+                        byte[] bytes = capture.toByteArray();
+                        if (bytes == null) {
+                            // too large to hold for the followers, they go upstream themselves
+                            sink.tryEmitEmpty();
+                            return;
+                        }
+                        HttpHeaders headers = new HttpHeaders();
+                        headers.putAll(getHeaders());
+                        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                        headers.remove(HttpHeaders.CONTENT_LENGTH);
+                        headers.remove(HttpHeaders.CONNECTION);
+                        sink.tryEmitValue(new CoalescedResponse(status, HttpHeaders.readOnlyHttpHeaders(headers), bytes));
+                    }));
+        }
+
+    }
+
+    private static final class CoalescedResponse {
+
+        private final HttpStatusCode status;
+
+        private final HttpHeaders headers;
+
+        private final byte[] body;
+
+        CoalescedResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+    }
+
+    public static class Config {
+
+        private List<String> headers = Collections.emptyList();
+
+        public List<String> getHeaders() {
+            return headers;
+        }
+
+        public Config setHeaders(List<String> headers) {
+            this.headers = headers;
+            return this;
+        }
+
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.wolfman.gateway.filter;
+
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.List;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Builds the key that identifies "the same request" for the caching and coalescing filters.
+ */
+final class RequestKeys {
+
+    private RequestKeys() {
+    }
+
+    /**
+     * Route id, raw path, raw query and the values of the given request headers.
+     */
+    static String of(ServerWebExchange exchange, List<String> headers) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        ServerHttpRequest request = exchange.getRequest();
+        StringBuilder key = new StringBuilder(64);
+        key.append(route == null ? "" : route.getId()).append(' ').append(request.getURI().getRawPath());
+        if (request.getURI().getRawQuery() != null) {
+            key.append('?').append(request.getURI().getRawQuery());
+        }
+        for (String header : headers) {
+            key.append('\n').append(header).append(':').append(request.getHeaders().getOrEmpty(header));
+        }
+        return key.toString();
+    }
+
+}
@@ -0,0 +1,240 @@
+package com.wolfman.gateway.filter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches successful GET responses of a route in a {@link ResponseCacheStore}.
+ * <p>
+ * Usage: {@code ResponseCache=30s, X-Tenant} caches for at most 30 seconds and keys on the
+ * path, the query and the {@code X-Tenant} header. Upstream {@code Cache-Control} can only
+ * shorten the TTL or disable caching, and {@code If-None-Match} is answered from the cached ETag.
+ * <p>
+ * The filter has to wrap the response before {@code NettyWriteResponseFilter}, so it runs at
+ * {@code WRITE_RESPONSE_FILTER_ORDER - 1}, ahead of every route filter. A cache hit is therefore
+ * answered without running the route's other filters, {@code RequestRateLimiter} included: hits
+ * are not rate limited. Limit cached routes with a global filter ordered before this one if that
+ * matters.
+ */
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+
+    /**
+     * Time to live key.
+     */
+    public static final String TIME_TO_LIVE = "timeToLive";
+
+    /**
+     * Key headers key.
+     */
+    public static final String HEADERS = "headers";
+
+    /**
+     * Response header telling whether the response was served from cache.
+     */
+    public static final String CACHE_STATUS_HEADER = "X-Wolfman-Cache";
+
+    private final ResponseCacheStore store;
+
+    public ResponseCacheGatewayFilterFactory(ResponseCacheStore store) {
+        super(Config.class);
+        this.store = store;
+    }
+
+    @Override
+    public List<String> shortcutFieldOrder() {
+        return Arrays.asList(TIME_TO_LIVE, HEADERS);
+    }
+
+    @Override
+    public ShortcutType shortcutType() {
+        return ShortcutType.GATHER_LIST_TAIL;
+    }
+
+    @Override
+    public GatewayFilter apply(Config config) {
+        // must wrap the response before NettyWriteResponseFilter writes the upstream body
+        return new OrderedGatewayFilter((exchange, chain) -> {
+            ServerHttpRequest request = exchange.getRequest();
+            if (request.getMethod() != HttpMethod.GET || hasDirective(request.getHeaders(), "no-cache")) {
+                return chain.filter(exchange);
+            }
+            String key = RequestKeys.of(exchange, config.getHeaders());
+            ResponseCacheStore.Entry cached = store.get(key);
+            if (cached != null) {
+                Mono<Void> hit = writeCached(exchange, cached);
+                if (hit != null) {
+                    return hit;
+                }
+            }
+            CachingResponse response = new CachingResponse(exchange.getResponse(), key, config);
+            return chain.filter(exchange.mutate().response(response).build());
+        }, NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1);
+    }
+
+    /**
+     * Writes the cached response, or returns {@code null} if its body was evicted concurrently.
+     */
+    private Mono<Void> writeCached(ServerWebExchange exchange, ResponseCacheStore.Entry cached) {
+        ServerHttpResponse response = exchange.getResponse();
+        String etag = cached.getHeaders().getETag();
+        if (etag != null && exchange.getRequest().getHeaders().getIfNoneMatch().contains(etag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            response.getHeaders().setETag(etag);
+            response.getHeaders().set(CACHE_STATUS_HEADER, "HIT");
+            return response.setComplete();
+        }
+        ByteBuf body = cached.retainBody();
+        if (body == null) {
+            return null;
+        }
+        response.setStatusCode(cached.getStatus());
+        response.getHeaders().putAll(cached.getHeaders());
+        response.getHeaders().setContentLength(body.readableBytes());
+        response.getHeaders().set(CACHE_STATUS_HEADER, "HIT");
+        return response.writeWith(Mono.just(wrap(response.bufferFactory(), body)));
+    }
+
+    /**
+     * Hands the retained body to Netty without a copy; the server releases it once written.
+     */
+    private static DataBuffer wrap(DataBufferFactory bufferFactory, ByteBuf body) {
+        if (bufferFactory instanceof NettyDataBufferFactory nettyBufferFactory) {
+            return nettyBufferFactory.wrap(body);
+        }
+        try {
+            return bufferFactory.wrap(ByteBufUtil.getBytes(body));
+        } finally {
+            body.release();
+        }
+    }
+
+    /**
+     * Returns how long the response may be cached, or {@code null} if it must not be cached.
+     */
+    private static Duration cacheableFor(Config config, HttpStatusCode status, HttpHeaders headers) {
+        if (status == null || status.value() != HttpStatus.OK.value() || headers.containsKey(HttpHeaders.SET_COOKIE)) {
+            return null;
+        }
+        Duration timeToLive = config.getTimeToLive();
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl != null) {
+            for (String directive : cacheControl.toLowerCase(Locale.ROOT).split(",")) {
+                directive = directive.trim();
+                if (directive.equals("no-store") || directive.equals("no-cache") || directive.equals("private")) {
+                    return null;
+                }
+                if (directive.startsWith("max-age=")) {
+                    try {
+                        Duration maxAge = Duration.ofSeconds(Long.parseLong(directive.substring("max-age=".length())));
+                        if (maxAge.compareTo(timeToLive) < 0) {
+                            timeToLive = maxAge;
+                        }
+                    } catch (NumberFormatException e) {
+                        return null;
+                    }
+                }
+            }
+        }
+        return timeToLive.isNegative() || timeToLive.isZero() ? null : timeToLive;
+    }
+
+    private static boolean hasDirective(HttpHeaders headers, String directive) {
+        String cacheControl = headers.getCacheControl();
+        return cacheControl != null && cacheControl.toLowerCase(Locale.ROOT).contains(directive);
+    }
+
+    private class CachingResponse extends ServerHttpResponseDecorator {
+
+        private final String key;
+
+        private final Config config;
+
+        CachingResponse(ServerHttpResponse delegate, String key, Config config) {
+            super(delegate);
+            this.key = key;
+            this.config = config;
+        }
+
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            Duration timeToLive = cacheableFor(config, getStatusCode(), getHeaders());
+            long contentLength = getHeaders().getContentLength();
+            if (timeToLive == null || contentLength > store.getMaxEntrySize()) {
+                return super.writeWith(body);
+            }
+            getHeaders().set(CACHE_STATUS_HEADER, "MISS");
+            // copy while streaming: a chunked body of unknown length is never held back from the client
+            HttpStatusCode status = getStatusCode();
+            BodyCapture capture = new BodyCapture(store.getMaxEntrySize());
+            return super.writeWith(Flux.from(body)
+                    .doOnNext(capture::append)
+                    .doOnComplete(() -> {
+                        ByteBuf copy = capture.toDirectByteBuf();
+                        if (copy == null) {
+                            return;
+                        }
+                        HttpHeaders headers = new HttpHeaders();
+                        headers.putAll(getHeaders());
+                        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+                        headers.remove(HttpHeaders.CONTENT_LENGTH);
+                        headers.remove(HttpHeaders.CONNECTION);
+                        headers.remove(CACHE_STATUS_HEADER);
+                        store.put(key, new ResponseCacheStore.Entry(status, headers, copy,
+                                TimeUnit.NANOSECONDS.convert(timeToLive)));
+                    }));
+        }
+
+    }
+
+    public static class Config {
+
+        private Duration timeToLive = Duration.ofMinutes(1);
+
+        private List<String> headers = Collections.emptyList();
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public Config setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+            return this;
+        }
+
+        public List<String> getHeaders() {
+            return headers;
+        }
+
+        public Config setHeaders(List<String> headers) {
+            this.headers = headers;
+            return this;
+        }
+
+    }
+
+}
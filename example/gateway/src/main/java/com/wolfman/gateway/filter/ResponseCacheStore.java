@@ -0,0 +1,151 @@
+package com.wolfman.gateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.IllegalReferenceCountException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+
+/**
+ * Size bounded store for cached upstream responses, backed by a Caffeine cache weighed by body
+ * size, so lookups on the event loop never contend on a single lock. Bodies are kept in unpooled
+ * direct {@link ByteBuf}s that stay off the Java heap and are released as soon as the entry is
+ * evicted, expired or replaced; only the headers and the bookkeeping live on heap.
+ * <p>
+ * Metrics: the Caffeine cache metrics ({@code cache.gets} hit/miss, {@code cache.evictions},
+ * {@code cache.size}, ...) tagged {@code cache=response-cache}, and
+ * {@code gateway.response-cache.weight}, the bytes held by cached bodies.
+ */
+public class ResponseCacheStore {
+
+    private static final String CACHE_NAME = "response-cache";
+
+    private final int maxEntrySize;
+
+    private final long maxSize;
+
+    private final Cache<String, Entry> entries;
+
+    public ResponseCacheStore(long maxSize, int maxEntrySize, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.maxEntrySize = maxEntrySize;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String key, Entry entry) -> entry.weight())
+                .expireAfter(new EntryExpiry())
+                .removalListener((String key, Entry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        entry.release();
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, CACHE_NAME);
+        Gauge.builder("gateway.response-cache.weight", this, ResponseCacheStore::weightedSize)
+                .description("Bytes held by cached response bodies")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public int getMaxEntrySize() {
+        return maxEntrySize;
+    }
+
+    public Entry get(String key) {
+        return entries.getIfPresent(key);
+    }
+
+    /**
+     * Stores the entry, which from then on owns its body. An entry that can never fit is
+     * released right away.
+     */
+    public void put(String key, Entry entry) {
+        if (entry.weight() > maxEntrySize || entry.weight() > maxSize) {
+            entry.release();
+            return;
+        }
+        entries.put(key, entry);
+    }
+
+    public long weightedSize() {
+        return entries.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L);
+    }
+
+    private static final class EntryExpiry implements Expiry<String, Entry> {
+
+        @Override
+        public long expireAfterCreate(String key, Entry entry, long currentTime) {
+            return Math.max(0, entry.getRemainingTimeToLiveNanos(System.nanoTime()));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, entry, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+    }
+
+    public static final class Entry {
+
+        private final HttpStatusCode status;
+
+        private final HttpHeaders headers;
+
+        private final ByteBuf body;
+
+        private final long expiresAtNanos;
+
+        public Entry(HttpStatusCode status, HttpHeaders headers, ByteBuf body, long timeToLiveNanos) {
+            this.status = status;
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.body = body;
+            this.expiresAtNanos = System.nanoTime() + timeToLiveNanos;
+        }
+
+        public HttpStatusCode getStatus() {
+            return status;
+        }
+
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        /**
+         * A retained duplicate of the body that the caller must release, so concurrent readers
+         * never share a reader index and an eviction does not free a body that is being written.
+         * Returns {@code null} if the entry was evicted and its body released in the meantime.
+         */
+        public ByteBuf retainBody() {
+            try {
+                return body.retainedDuplicate();
+            } catch (IllegalReferenceCountException e) {
+                return null;
+            }
+        }
+
+        public long getRemainingTimeToLiveNanos(long now) {
+            return expiresAtNanos - now;
+        }
+
+        int weight() {
+            return body.readableBytes();
+        }
+
+        void release() {
+            body.release();
+        }
+
+    }
+
+}
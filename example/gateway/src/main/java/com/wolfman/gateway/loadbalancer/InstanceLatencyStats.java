@@ -0,0 +1,124 @@
+package com.wolfman.gateway.loadbalancer;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight count and peak-sensitive EWMA of response latency per service instance.
+ * <p>
+ * A slower sample replaces the average at once, a faster one is blended in with a weight that
+ * grows with the time since the previous sample, so an instance that turns slow loses traffic
+ * immediately and one that recovers earns it back within a few decay periods. The average also
+ * decays while an instance gets no traffic, so a shunned instance is eventually probed again.
+ * <p>
+ * Failed calls (connection errors, 5xx) usually fail fast, so their latency would make a broken
+ * instance look cheap. They are recorded as at least the failure latency instead.
+ */
+public class InstanceLatencyStats {
+
+    private final ConcurrentHashMap<String, Stats> stats = new ConcurrentHashMap<>();
+
+    private final double decayNanos;
+
+    private final long failureLatencyNanos;
+
+    public InstanceLatencyStats(long decay, long failureLatency, TimeUnit unit) {
+        this.decayNanos = unit.toNanos(decay);
+        this.failureLatencyNanos = unit.toNanos(failureLatency);
+    }
+
+    public void onStart(ServiceInstance instance) {
+        get(instance).inFlight.incrementAndGet();
+    }
+
+    public void onComplete(ServiceInstance instance, long latencyNanos) {
+        Stats s = stats.get(key(instance));
+        if (s == null) {
+            // the instance left while the request was in flight
+            return;
+        }
+        s.inFlight.decrementAndGet();
+        s.observe(latencyNanos, System.nanoTime(), decayNanos);
+    }
+
+    public void onFailure(ServiceInstance instance, long latencyNanos) {
+        onComplete(instance, Math.max(latencyNanos, failureLatencyNanos));
+    }
+
+    /**
+     * Completion without an outcome (discarded or cancelled): only the in-flight count changes.
+     */
+    public void onDiscard(ServiceInstance instance) {
+        Stats s = stats.get(key(instance));
+        if (s != null) {
+            s.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Drops the stats of instances of {@code serviceId} that are no longer in {@code instances}.
+     */
+    public void retain(String serviceId, List<ServiceInstance> instances) {
+        Set<String> current = new HashSet<>();
+        for (ServiceInstance instance : instances) {
+            current.add(key(instance));
+        }
+        stats.keySet().removeIf(key -> key.startsWith(serviceId + '/') && !current.contains(key));
+    }
+
+    /**
+     * Expected cost of sending one more request to the instance: latency times queue length.
+     */
+    public double cost(ServiceInstance instance) {
+        Stats s = stats.get(key(instance));
+        if (s == null) {
+            return 1;
+        }
+        return (s.ewma(System.nanoTime(), decayNanos) + 1) * (s.inFlight.get() + 1);
+    }
+
+    public int inFlight(ServiceInstance instance) {
+        Stats s = stats.get(key(instance));
+        return s == null ? 0 : s.inFlight.get();
+    }
+
+    private Stats get(ServiceInstance instance) {
+        return stats.computeIfAbsent(key(instance), key -> new Stats());
+    }
+
+    private static String key(ServiceInstance instance) {
+        return instance.getServiceId() + '/' + instance.getHost() + ':' + instance.getPort();
+    }
+
+    private static final class Stats {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private double ewmaNanos;
+
+        private long lastSampleNanos = System.nanoTime();
+
+        synchronized void observe(long latencyNanos, long now, double decayNanos) {
+            if (latencyNanos > ewmaNanos) {
+                ewmaNanos = latencyNanos;
+            } else {
+                double weight = Math.exp(-Math.max(now - lastSampleNanos, 0) / decayNanos);
+                ewmaNanos = ewmaNanos * weight + latencyNanos * (1 - weight);
+            }
+            lastSampleNanos = now;
+        }
+
+        synchronized double ewma(long now, double decayNanos) {
+            // idle instances drift back toward zero so they are probed again
+            return ewmaNanos * Math.exp(-Math.max(now - lastSampleNanos, 0) / (decayNanos * 10));
+        }
+
+    }
+
+}
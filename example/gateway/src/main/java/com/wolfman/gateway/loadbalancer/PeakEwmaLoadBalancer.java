@@ -0,0 +1,129 @@
+package com.wolfman.gateway.loadbalancer;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power-of-two-choices load balancer: picks two random instances and sends the request to the
+ * one with the lower {@link InstanceLatencyStats#cost(ServiceInstance)}. It is also the
+ * {@link LoadBalancerLifecycle} that feeds the stats, so it has to be registered as a bean of
+ * its own type in the load balancer client context.
+ * <p>
+ * FAILED completions and 5xx responses are reported as failures so a fast-failing instance
+ * gets more expensive instead of cheaper. Stats of instances that disappear from the instance
+ * list are dropped when the list changes.
+ */
+public class PeakEwmaLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    private static final Log log = LogFactory.getLog(PeakEwmaLoadBalancer.class);
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final String serviceId;
+
+    private final InstanceLatencyStats stats;
+
+    private volatile List<ServiceInstance> lastInstances = List.of();
+
+    public PeakEwmaLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                String serviceId, InstanceLatencyStats stats) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.serviceId = serviceId;
+        this.stats = stats;
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        return supplier.get(request).next().map(this::choose);
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        if (instances.isEmpty()) {
+            if (log.isWarnEnabled()) {
+                log.warn("No servers available for service: " + serviceId);
+            }
+            return new EmptyResponse();
+        }
+        List<ServiceInstance> previous = lastInstances;
+        if (instances != previous && !instances.equals(previous)) {
+            lastInstances = instances;
+            stats.retain(serviceId, instances);
+        }
+        if (instances.size() == 1) {
+            return new DefaultResponse(instances.get(0));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(instances.size());
+        int second = random.nextInt(instances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = instances.get(first);
+        ServiceInstance b = instances.get(second);
+        return new DefaultResponse(stats.cost(a) <= stats.cost(b) ? a : b);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        if (request.getContext() instanceof TimedRequestContext context) {
+            context.setRequestStartTime(System.nanoTime());
+        }
+        stats.onStart(lbResponse.getServer());
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+        long latency = 0;
+        Object context = completionContext.getLoadBalancerRequest() == null ? null
+                : completionContext.getLoadBalancerRequest().getContext();
+        if (context instanceof TimedRequestContext timedContext && timedContext.getRequestStartTime() > 0) {
+            latency = System.nanoTime() - timedContext.getRequestStartTime();
+        }
+        ServiceInstance instance = lbResponse.getServer();
+        if (completionContext.status() == CompletionContext.Status.DISCARD) {
+            stats.onDiscard(instance);
+        } else if (completionContext.status() == CompletionContext.Status.FAILED
+                || isServerError(completionContext.getClientResponse())) {
+            stats.onFailure(instance, latency);
+        } else {
+            stats.onComplete(instance, latency);
+        }
+    }
+
+    private static boolean isServerError(Object clientResponse) {
+        return clientResponse instanceof ResponseData responseData && responseData.getHttpStatus() != null
+                && responseData.getHttpStatus().is5xxServerError();
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.wolfman.gateway.loadbalancer;
+
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer client configuration, registered through {@code @LoadBalancerClients} and
+ * deliberately not a {@code @Configuration} so it is only picked up by the client contexts.
+ */
+public class PeakEwmaLoadBalancerConfiguration {
+
+    @Bean
+    public PeakEwmaLoadBalancer peakEwmaLoadBalancer(Environment environment,
+                                                     LoadBalancerClientFactory loadBalancerClientFactory,
+                                                     InstanceLatencyStats instanceLatencyStats) {
+        String name = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PeakEwmaLoadBalancer(loadBalancerClientFactory.getLazyProvider(name, ServiceInstanceListSupplier.class),
+                name, instanceLatencyStats);
+    }
+
+}
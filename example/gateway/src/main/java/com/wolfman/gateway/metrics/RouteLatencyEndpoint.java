@@ -0,0 +1,35 @@
+package com.wolfman.gateway.metrics;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@code /actuator/routelatency}: p50/p99/p999 (ms) and throughput per route for the last window.
+ */
+@Endpoint(id = "routelatency")
+public class RouteLatencyEndpoint {
+
+    private final RouteLatencyRecorder recorder;
+
+    public RouteLatencyEndpoint(RouteLatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @ReadOperation
+    public Map<String, Object> routes() {
+        Map<String, Object> routes = new TreeMap<>();
+        recorder.getRoutes().forEach((routeId, latency) -> routes.put(routeId, latency.describe()));
+        return routes;
+    }
+
+    @ReadOperation
+    public Map<String, Object> route(@Selector String routeId) {
+        RouteLatencyRecorder.RouteLatency latency = recorder.getRoutes().get(routeId);
+        return latency == null ? null : latency.describe();
+    }
+
+}
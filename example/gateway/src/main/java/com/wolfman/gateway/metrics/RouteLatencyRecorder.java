@@ -0,0 +1,162 @@
+package com.wolfman.gateway.metrics;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Upstream and total latency per route id, recorded into HdrHistogram {@link Recorder}s.
+ * <p>
+ * Recording is wait-free and allocation free: the recorders have a fixed range
+ * (1 microsecond to {@link #HIGHEST_TRACKABLE_MICROS}, 2 significant digits), so they never resize
+ * and memory per route is bounded. Every {@code window} the recorders are flipped into the
+ * snapshot that the actuator endpoint reads. Routes that disappear on a route refresh are dropped.
+ */
+public class RouteLatencyRecorder implements ApplicationListener<RefreshRoutesResultEvent>, DisposableBean {
+
+    /**
+     * Highest latency that is tracked, larger values are clamped.
+     */
+    public static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final ConcurrentHashMap<String, RouteLatency> routes = new ConcurrentHashMap<>();
+
+    private final Disposable rotation;
+
+    private final ObjectProvider<RouteLocator> routeLocator;
+
+    public RouteLatencyRecorder(Duration window, ObjectProvider<RouteLocator> routeLocator) {
+        this.routeLocator = routeLocator;
+        this.rotation = Schedulers.parallel().schedulePeriodically(this::rotate,
+                window.toMillis(), window.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordTotal(String routeId, long nanos) {
+        route(routeId).total.recordValue(toMicros(nanos));
+    }
+
+    public void recordUpstream(String routeId, long nanos) {
+        route(routeId).upstream.recordValue(toMicros(nanos));
+    }
+
+    /**
+     * Upstream latency at the given percentile in the last window, or {@code -1} if nothing was recorded.
+     */
+    public long upstreamPercentileMicros(String routeId, double percentile) {
+        RouteLatency route = routes.get(routeId);
+        return route == null ? -1 : route.upstreamPercentileMicros(percentile);
+    }
+
+    public Map<String, RouteLatency> getRoutes() {
+        return routes;
+    }
+
+    public void rotate() {
+        long now = System.nanoTime();
+        routes.values().forEach(route -> route.rotate(now));
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        RouteLocator locator = routeLocator.getIfAvailable();
+        if (event.isSuccess() && locator != null) {
+            locator.getRoutes().map(Route::getId).collect(Collectors.toSet()).subscribe(this::retainRoutes);
+        }
+    }
+
+    /**
+     * Drops the latency of every route that is not in {@code routeIds}.
+     */
+    public void retainRoutes(Set<String> routeIds) {
+        routes.keySet().retainAll(routeIds);
+    }
+
+    @Override
+    public void destroy() {
+        rotation.dispose();
+    }
+
+    private RouteLatency route(String routeId) {
+        RouteLatency route = routes.get(routeId);
+        return route != null ? route : routes.computeIfAbsent(routeId, id -> new RouteLatency());
+    }
+
+    private static long toMicros(long nanos) {
+        return Math.max(1, Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    public static final class RouteLatency {
+
+        private final Recorder upstream = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+        private final Recorder total = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+
+        private Histogram upstreamSnapshot;
+
+        private Histogram totalSnapshot;
+
+        private long snapshotStartNanos = System.nanoTime();
+
+        private long snapshotNanos;
+
+        private long totalCount;
+
+        synchronized void rotate(long now) {
+            upstreamSnapshot = upstream.getIntervalHistogram(upstreamSnapshot);
+            totalSnapshot = total.getIntervalHistogram(totalSnapshot);
+            snapshotNanos = now - snapshotStartNanos;
+            snapshotStartNanos = now;
+            totalCount += totalSnapshot.getTotalCount();
+        }
+
+        synchronized long upstreamPercentileMicros(double percentile) {
+            if (upstreamSnapshot == null || upstreamSnapshot.getTotalCount() == 0) {
+                return -1;
+            }
+            return upstreamSnapshot.getValueAtPercentile(percentile);
+        }
+
+        /**
+         * Percentiles and throughput of the last completed window, in milliseconds and requests per second.
+         */
+        public synchronized Map<String, Object> describe() {
+            if (totalSnapshot == null) {
+                return Map.of("count", 0L);
+            }
+            double seconds = snapshotNanos / 1e9;
+            return Map.of(
+                    "count", totalCount,
+                    "windowSeconds", seconds,
+                    "throughput", seconds > 0 ? totalSnapshot.getTotalCount() / seconds : 0d,
+                    "total", percentiles(totalSnapshot),
+                    "upstream", percentiles(upstreamSnapshot));
+        }
+
+        private static Map<String, Object> percentiles(Histogram histogram) {
+            return Map.of(
+                    "count", histogram.getTotalCount(),
+                    "p50", histogram.getValueAtPercentile(50) / 1000d,
+                    "p99", histogram.getValueAtPercentile(99) / 1000d,
+                    "p999", histogram.getValueAtPercentile(99.9) / 1000d,
+                    "max", histogram.getMaxValue() / 1000d);
+        }
+
+    }
+
+}
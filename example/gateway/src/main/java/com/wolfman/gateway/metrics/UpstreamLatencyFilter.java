@@ -0,0 +1,40 @@
+package com.wolfman.gateway.metrics;
+
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.core.Ordered;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR;
+
+/**
+ * Runs right before {@link NettyRoutingFilter} and records the time until the upstream
+ * response headers have arrived.
+ */
+public class UpstreamLatencyFilter implements GlobalFilter, Ordered {
+
+    private final RouteLatencyRecorder recorder;
+
+    public UpstreamLatencyFilter(RouteLatencyRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(GATEWAY_ROUTE_ATTR);
+        if (route == null) {
+            return chain.filter(exchange);
+        }
+        long start = System.nanoTime();
+        return chain.filter(exchange).doFinally(signal -> recorder.recordUpstream(route.getId(), System.nanoTime() - start));
+    }
+
+    @Override
+    public int getOrder() {
+        return NettyRoutingFilter.ORDER - 1;
+    }
+
+}
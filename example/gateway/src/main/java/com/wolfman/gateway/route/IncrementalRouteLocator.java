@@ -0,0 +1,190 @@
+package com.wolfman.gateway.route;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.cloud.gateway.config.GatewayProperties;
+import org.springframework.cloud.gateway.filter.FilterDefinition;
+import org.springframework.cloud.gateway.filter.factory.GatewayFilterFactory;
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.handler.predicate.RoutePredicateFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteDefinitionRouteLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Drop-in replacement for {@link RouteDefinitionRouteLocator} that only recompiles the route
+ * definitions that changed since the previous refresh.
+ * <p>
+ * Compiled routes are remembered together with the definition they were built from; a definition
+ * that is {@code equals} to the remembered one reuses its route, predicates and filters as they
+ * are. Everything is recompiled when {@code spring.cloud.gateway.default-filters} changed, and a
+ * definition with SpEL arguments is always recompiled since the properties it reads can change
+ * without the definition changing. The new table is published with a single reference swap, and
+ * each rebuild is timed as {@code gateway.routes.rebuild}.
+ */
+public class IncrementalRouteLocator implements RouteLocator {
+
+    private static final Log log = LogFactory.getLog(IncrementalRouteLocator.class);
+
+    private static final String CHANGED_DEFINITIONS = IncrementalRouteLocator.class.getName() + ".changedDefinitions";
+
+    private final RouteDefinitionLocator routeDefinitionLocator;
+
+    private final RouteDefinitionRouteLocator compiler;
+
+    private final GatewayProperties gatewayProperties;
+
+    private final Timer rebuildTimer;
+
+    private final AtomicReference<Map<String, CompiledRoute>> compiled = new AtomicReference<>(Collections.emptyMap());
+
+    private final AtomicReference<List<FilterDefinition>> compiledDefaultFilters = new AtomicReference<>();
+
+    public IncrementalRouteLocator(RouteDefinitionLocator routeDefinitionLocator, List<RoutePredicateFactory> predicates,
+                                   List<GatewayFilterFactory> gatewayFilterFactories, GatewayProperties gatewayProperties,
+                                   ConfigurationService configurationService, MeterRegistry meterRegistry) {
+        this.routeDefinitionLocator = routeDefinitionLocator;
+        this.gatewayProperties = gatewayProperties;
+        // the gateway's own locator, fed only the changed definitions through the subscriber context,
+        // so predicates, filters and default filters are bound exactly as they would be otherwise
+        this.compiler = new RouteDefinitionRouteLocator(
+                () -> Flux.deferContextual(context -> Flux.fromIterable(context.<List<RouteDefinition>>get(CHANGED_DEFINITIONS))),
+                predicates, gatewayFilterFactories, gatewayProperties, configurationService);
+        this.rebuildTimer = Timer.builder("gateway.routes.rebuild")
+                .description("Time to rebuild the route table on refresh")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Flux<Route> getRoutes() {
+        return routeDefinitionLocator.getRouteDefinitions()
+                .collectList()
+                .flatMap(this::rebuild)
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    private Mono<List<Route>> rebuild(List<RouteDefinition> definitions) {
+        long start = System.nanoTime();
+        List<FilterDefinition> defaultFilters = copy(gatewayProperties.getDefaultFilters());
+        // default filters are bound into every route, a change means no route can be reused
+        Map<String, CompiledRoute> previous = defaultFilters.equals(compiledDefaultFilters.get())
+                ? compiled.get() : Collections.emptyMap();
+        Map<String, CompiledRoute> next = new HashMap<>(definitions.size() * 2);
+        List<RouteDefinition> changed = new ArrayList<>();
+        for (RouteDefinition definition : definitions) {
+            CompiledRoute existing = previous.get(definition.getId());
+            if (existing != null && existing.definition.equals(definition) && !hasExpressions(definition)) {
+                next.put(definition.getId(), existing);
+            } else {
+                changed.add(definition);
+            }
+        }
+        int reused = next.size();
+        Map<String, RouteDefinition> changedById = new HashMap<>();
+        changed.forEach(definition -> changedById.put(definition.getId(), definition));
+        return compiler.getRoutes()
+                .contextWrite(Context.of(CHANGED_DEFINITIONS, changed))
+                .filter(route -> changedById.containsKey(route.getId()))
+                .doOnNext(route -> next.put(route.getId(), new CompiledRoute(changedById.get(route.getId()), route)))
+                .then(Mono.fromSupplier(() -> {
+                    compiled.set(next);
+                    compiledDefaultFilters.set(defaultFilters);
+                    List<Route> routes = new ArrayList<>(next.size());
+                    for (RouteDefinition definition : definitions) {
+                        CompiledRoute route = next.get(definition.getId());
+                        if (route != null) {
+                            routes.add(route.route);
+                        }
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                    if (log.isInfoEnabled()) {
+                        log.info("Rebuilt route table in " + TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms, routes: "
+                                + routes.size() + ", reused: " + reused + ", recompiled: " + (next.size() - reused)
+                                + ", removed: " + removed(previous, next));
+                    }
+                    return routes;
+                }));
+    }
+
+    /**
+     * Whether any predicate or filter argument is a SpEL expression, which is evaluated at compile time.
+     */
+    private static boolean hasExpressions(RouteDefinition definition) {
+        for (PredicateDefinition predicate : definition.getPredicates()) {
+            if (hasExpressions(predicate.getArgs())) {
+                return true;
+            }
+        }
+        for (FilterDefinition filter : definition.getFilters()) {
+            if (hasExpressions(filter.getArgs())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasExpressions(Map<String, String> args) {
+        for (String value : args.values()) {
+            if (value != null && value.trim().startsWith("#{")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copies the definitions, the bound properties may be updated in place on refresh.
+     */
+    private static List<FilterDefinition> copy(List<FilterDefinition> filters) {
+        List<FilterDefinition> copy = new ArrayList<>(filters.size());
+        for (FilterDefinition filter : filters) {
+            FilterDefinition definition = new FilterDefinition();
+            definition.setName(filter.getName());
+            definition.setArgs(new LinkedHashMap<>(filter.getArgs()));
+            copy.add(definition);
+        }
+        return copy;
+    }
+
+    private static int removed(Map<String, CompiledRoute> previous, Map<String, CompiledRoute> next) {
+        int removed = 0;
+        for (String id : previous.keySet()) {
+            if (!next.containsKey(id)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private static final class CompiledRoute {
+
+        private final RouteDefinition definition;
+
+        private final Route route;
+
+        CompiledRoute(RouteDefinition definition, Route route) {
+            this.definition = definition;
+            this.route = route;
+        }
+
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.wolfman.gateway.route;
+
+import org.springframework.cloud.gateway.handler.predicate.PredicateDefinition;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinition;
+import org.springframework.cloud.gateway.support.NameUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.LinkedCaseInsensitiveMap;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of the route table with every pure {@code Wolfman=} route compiled into a
+ * header key -> header value -> route table. Routes that carry any other predicate
+ * stay in {@link #getFallbackRoutes()} and keep their original position, so the
+ * handler mapping can still honour route order in mixed configs.
+ */
+public class WolfmanRouteIndex {
+
+    private final Map<String, Map<String, IndexedRoute>> routesByHeader;
+
+    private final List<Route> fallbackRoutes;
+
+    private final int[] fallbackPositions;
+
+    private WolfmanRouteIndex(Map<String, Map<String, IndexedRoute>> routesByHeader,
+                              List<Route> fallbackRoutes, int[] fallbackPositions) {
+        this.routesByHeader = routesByHeader;
+        this.fallbackRoutes = fallbackRoutes;
+        this.fallbackPositions = fallbackPositions;
+    }
+
+    /**
+     * @param predicateName name of the Wolfman predicate, e.g. {@code Wolfman}
+     * @param definitions   route definitions the routes were built from
+     * @param routes        routes in the order the gateway tests them
+     */
+    public static WolfmanRouteIndex compile(String predicateName, List<RouteDefinition> definitions, List<Route> routes) {
+        Map<String, RouteDefinition> definitionsById = new HashMap<>();
+        for (RouteDefinition definition : definitions) {
+            definitionsById.putIfAbsent(definition.getId(), definition);
+        }
+
+        Map<String, Map<String, IndexedRoute>> routesByHeader = new LinkedCaseInsensitiveMap<>();
+        List<Route> fallbackRoutes = new ArrayList<>();
+        int[] fallbackPositions = new int[routes.size()];
+        for (int position = 0; position < routes.size(); position++) {
+            Route route = routes.get(position);
+            WolfmanRoutePredicateFactory.Config config = indexableConfig(predicateName, definitionsById.get(route.getId()));
+            if (config == null) {
+                fallbackPositions[fallbackRoutes.size()] = position;
+                fallbackRoutes.add(route);
+                continue;
+            }
+            // an earlier route with the same header pair always wins, so later duplicates are unreachable
+            routesByHeader.computeIfAbsent(config.getHeaderKey(), key -> new HashMap<>())
+                    .putIfAbsent(config.getHeaderValue(), new IndexedRoute(route, position));
+        }
+        return new WolfmanRouteIndex(routesByHeader, Collections.unmodifiableList(fallbackRoutes), fallbackPositions);
+    }
+
+    /**
+     * Returns the first indexed route matching the given headers, or {@code null}.
+     */
+    public IndexedRoute lookup(HttpHeaders headers) {
+        IndexedRoute candidate = null;
+        for (Map.Entry<String, Map<String, IndexedRoute>> entry : routesByHeader.entrySet()) {
+            List<String> values = headers.get(entry.getKey());
+            if (values == null) {
+                continue;
+            }
+            Map<String, IndexedRoute> routesByValue = entry.getValue();
+            for (int i = 0; i < values.size(); i++) {
+                IndexedRoute route = routesByValue.get(values.get(i));
+                if (route != null && (candidate == null || route.position < candidate.position)) {
+                    candidate = route;
+                }
+            }
+        }
+        return candidate;
+    }
+
+    public List<Route> getFallbackRoutes() {
+        return fallbackRoutes;
+    }
+
+    public int getFallbackPosition(int fallbackIndex) {
+        return fallbackPositions[fallbackIndex];
+    }
+
+    public int getIndexedHeaderKeys() {
+        return routesByHeader.size();
+    }
+
+    private static WolfmanRoutePredicateFactory.Config indexableConfig(String predicateName, RouteDefinition definition) {
+        if (definition == null || definition.getPredicates().size() != 1) {
+            return null;
+        }
+        PredicateDefinition predicate = definition.getPredicates().get(0);
+        if (!predicateName.equals(predicate.getName())) {
+            return null;
+        }
+        Map<String, String> args = predicate.getArgs();
+        String headerKey = args.containsKey(WolfmanRoutePredicateFactory.HEADER_KEY)
+                ? args.get(WolfmanRoutePredicateFactory.HEADER_KEY) : args.get(NameUtils.generateName(0));
+        String headerValue = args.containsKey(WolfmanRoutePredicateFactory.HEADER_VALUE)
+                ? args.get(WolfmanRoutePredicateFactory.HEADER_VALUE) : args.get(NameUtils.generateName(1));
+        // SpEL values are only known once bound, leave them to the plain predicate
+        if (headerKey == null || headerValue == null || headerKey.startsWith("#{") || headerValue.startsWith("#{")) {
+            return null;
+        }
+        return new WolfmanRoutePredicateFactory.Config().setHeaderKey(headerKey.trim()).setHeaderValue(headerValue.trim());
+    }
+
+    public static final class IndexedRoute {
+
+        private final Route route;
+
+        private final int position;
+
+        IndexedRoute(Route route, int position) {
+            this.route = route;
+            this.position = position;
+        }
+
+        public Route getRoute() {
+            return route;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+    }
+
+}
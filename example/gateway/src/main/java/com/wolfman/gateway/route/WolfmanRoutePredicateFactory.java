@@ -7,7 +7,6 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.server.ServerWebExchange;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.function.Predicate;
 
@@ -39,12 +38,8 @@ public class WolfmanRoutePredicateFactory extends AbstractRoutePredicateFactory<
         return new GatewayPredicate() {
             @Override
             public boolean test(ServerWebExchange exchange) {
-                if (exchange.getRequest().getHeaders().get(config.headerKey) == null){
-                    return false;
-                }
-                List<String> values = exchange.getRequest().getHeaders().getOrDefault(config.headerKey,
-                        Collections.emptyList());
-                return values.contains(config.getHeaderValue());
+                List<String> values = exchange.getRequest().getHeaders().get(config.headerKey);
+                return values != null && values.contains(config.getHeaderValue());
             }
 
             @Override
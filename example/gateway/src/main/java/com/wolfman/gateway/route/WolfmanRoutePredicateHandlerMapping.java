@@ -0,0 +1,96 @@
+package com.wolfman.gateway.route;
+
+import org.springframework.cloud.gateway.config.GlobalCorsProperties;
+import org.springframework.cloud.gateway.event.RefreshRoutesResultEvent;
+import org.springframework.cloud.gateway.handler.FilteringWebHandler;
+import org.springframework.cloud.gateway.handler.RoutePredicateHandlerMapping;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.route.RouteDefinitionLocator;
+import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.springframework.cloud.gateway.support.ServerWebExchangeUtils.GATEWAY_PREDICATE_ROUTE_ATTR;
+
+/**
+ * Resolves {@code Wolfman=} routes through a {@link WolfmanRouteIndex} instead of testing
+ * them one after another. Only the routes that are not indexed are still tested in order,
+ * and only those that come before the indexed candidate.
+ */
+public class WolfmanRoutePredicateHandlerMapping extends RoutePredicateHandlerMapping
+        implements ApplicationListener<RefreshRoutesResultEvent> {
+
+    private final RouteLocator routeLocator;
+
+    private final RouteDefinitionLocator routeDefinitionLocator;
+
+    private final String predicateName;
+
+    private final AtomicReference<WolfmanRouteIndex> index = new AtomicReference<>();
+
+    public WolfmanRoutePredicateHandlerMapping(FilteringWebHandler webHandler, RouteLocator routeLocator,
+                                               RouteDefinitionLocator routeDefinitionLocator,
+                                               WolfmanRoutePredicateFactory predicateFactory,
+                                               GlobalCorsProperties globalCorsProperties, Environment environment) {
+        super(webHandler, routeLocator, globalCorsProperties, environment);
+        this.routeLocator = routeLocator;
+        this.routeDefinitionLocator = routeDefinitionLocator;
+        this.predicateName = predicateFactory.name();
+    }
+
+    @Override
+    public void onApplicationEvent(RefreshRoutesResultEvent event) {
+        if (event.isSuccess()) {
+            rebuild().subscribe();
+        }
+    }
+
+    public Mono<WolfmanRouteIndex> rebuild() {
+        return Mono.zip(routeDefinitionLocator.getRouteDefinitions().collectList(), routeLocator.getRoutes().collectList())
+                .map(tuple -> WolfmanRouteIndex.compile(predicateName, tuple.getT1(), tuple.getT2()))
+                .doOnNext(compiled -> {
+                    index.set(compiled);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Compiled Wolfman route index, header keys: " + compiled.getIndexedHeaderKeys()
+                                + ", fallback routes: " + compiled.getFallbackRoutes().size());
+                    }
+                })
+                .doOnError(e -> logger.error("Error compiling Wolfman route index", e));
+    }
+
+    @Override
+    protected Mono<Route> lookupRoute(ServerWebExchange exchange) {
+        WolfmanRouteIndex current = index.get();
+        if (current == null) {
+            return super.lookupRoute(exchange);
+        }
+        WolfmanRouteIndex.IndexedRoute candidate = current.lookup(exchange.getRequest().getHeaders());
+        int limit = candidate == null ? Integer.MAX_VALUE : candidate.getPosition();
+        List<Route> fallbackRoutes = current.getFallbackRoutes();
+
+        return Flux.range(0, fallbackRoutes.size())
+                .takeWhile(i -> current.getFallbackPosition(i) < limit)
+                .map(fallbackRoutes::get)
+                .concatMap(route -> Mono.just(route).filterWhen(r -> {
+                    exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, r.getId());
+                    return r.getPredicate().apply(exchange);
+                }).doOnError(e -> logger.error("Error applying predicate for route: " + route.getId(), e))
+                        .onErrorResume(e -> Mono.empty()))
+                .next()
+                .switchIfEmpty(Mono.justOrEmpty(candidate).map(indexed -> {
+                    exchange.getAttributes().put(GATEWAY_PREDICATE_ROUTE_ATTR, indexed.getRoute().getId());
+                    return indexed.getRoute();
+                }))
+                .map(route -> {
+                    validateRoute(route, exchange);
+                    return route;
+                });
+    }
+
+}